@@ -0,0 +1,263 @@
+package datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Index of the DrawNodes by the id of the node they represent, without boxing the ids.
+ * The ids are kept in an open addressing table with linear probing. A node can be drawn more than once,
+ * so every id points to a chain of entries holding its DrawNodes in the order of the list of DrawNodes.
+ * Entries are reused after removal, so keeping the index up to date while zooming doesn't allocate.
+ */
+final class DrawIndex {
+    /**
+     * Marks an empty slot in the table and the end of a chain.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The id in every slot of the table, NONE if the slot is empty.
+     */
+    private int[] ids;
+
+    /**
+     * The first entry of the id in every slot of the table.
+     */
+    private int[] heads;
+
+    /**
+     * Number of ids in the table.
+     */
+    private int size;
+
+    /**
+     * The DrawNode of every entry, null if the entry is free.
+     */
+    private DrawNode[] nodes;
+
+    /**
+     * The next entry of the same id for every entry, or the next free entry for free entries.
+     */
+    private int[] next;
+
+    /**
+     * Number of entries that have been used.
+     */
+    private int used;
+
+    /**
+     * First entry that has been freed, NONE if there is none.
+     */
+    private int free;
+
+    /**
+     * Constructor for a DrawIndex.
+     * @param expected the number of DrawNodes the index is expected to hold.
+     */
+    DrawIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, 2 * expected) - 1) << 1;
+        ids = new int[capacity];
+        Arrays.fill(ids, NONE);
+        heads = new int[capacity];
+        nodes = new DrawNode[Math.max(8, expected)];
+        next = new int[nodes.length];
+        free = NONE;
+    }
+
+    /**
+     * Adds a DrawNode to the chain of its id.
+     * @param dNode the DrawNode.
+     * @param first true iff the DrawNode comes before the other DrawNodes of its id.
+     */
+    void add(DrawNode dNode, boolean first) {
+        int entry = allocate(dNode);
+        int slot = find(dNode.getIndex());
+        if (ids[slot] == NONE) {
+            ids[slot] = dNode.getIndex();
+            heads[slot] = entry;
+            size++;
+            if (2 * size > ids.length) {
+                rehash(2 * ids.length);
+            }
+        } else if (first) {
+            next[entry] = heads[slot];
+            heads[slot] = entry;
+        } else {
+            int last = heads[slot];
+            while (next[last] != NONE) {
+                last = next[last];
+            }
+            next[last] = entry;
+        }
+    }
+
+    /**
+     * Removes a DrawNode from the chain of its id.
+     * @param dNode the DrawNode.
+     * @return true iff the DrawNode was in the index.
+     */
+    boolean remove(DrawNode dNode) {
+        int slot = find(dNode.getIndex());
+        if (ids[slot] == NONE) {
+            return false;
+        }
+        int previous = NONE;
+        int entry = heads[slot];
+        while (entry != NONE && nodes[entry] != dNode) {
+            previous = entry;
+            entry = next[entry];
+        }
+        if (entry == NONE) {
+            return false;
+        }
+        if (previous == NONE) {
+            heads[slot] = next[entry];
+        } else {
+            next[previous] = next[entry];
+        }
+        nodes[entry] = null;
+        next[entry] = free;
+        free = entry;
+        if (heads[slot] == NONE) {
+            removeSlot(slot);
+            size--;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the first entry of an id, the other entries are found with next.
+     * @param id the id of the node.
+     * @return the first entry, or -1 if the node is not drawn.
+     */
+    int head(int id) {
+        int slot = find(id);
+        if (ids[slot] == NONE) {
+            return NONE;
+        }
+        return heads[slot];
+    }
+
+    /**
+     * Gets the next entry of the same id.
+     * @param entry an entry.
+     * @return the next entry, or -1 if it is the last one.
+     */
+    int next(int entry) {
+        return next[entry];
+    }
+
+    /**
+     * Gets the DrawNode of an entry.
+     * @param entry an entry.
+     * @return the DrawNode.
+     */
+    DrawNode get(int entry) {
+        return nodes[entry];
+    }
+
+    /**
+     * Gets the first DrawNode of an id.
+     * @param id the id of the node.
+     * @return the first DrawNode, null if the node is not drawn.
+     */
+    DrawNode first(int id) {
+        int entry = head(id);
+        if (entry == NONE) {
+            return null;
+        }
+        return nodes[entry];
+    }
+
+    /**
+     * Returns the amount of ids.
+     * @return the number of nodes with at least one DrawNode in the index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Takes a free entry for a DrawNode.
+     * @param dNode the DrawNode.
+     * @return the entry.
+     */
+    private int allocate(DrawNode dNode) {
+        int entry = free;
+        if (entry != NONE) {
+            free = next[entry];
+        } else {
+            if (used == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * used);
+                next = Arrays.copyOf(next, 2 * used);
+            }
+            entry = used;
+            used++;
+        }
+        nodes[entry] = dNode;
+        next[entry] = NONE;
+        return entry;
+    }
+
+    /**
+     * Finds the slot of an id.
+     * @param id the id.
+     * @return the slot containing the id, or the empty slot where it would be added.
+     */
+    private int find(int id) {
+        int mask = ids.length - 1;
+        int slot = hash(id) & mask;
+        while (ids[slot] != NONE && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot and moves the ids after it back, so no id is separated from its home slot by an empty slot.
+     * @param slot the slot to empty.
+     */
+    private void removeSlot(int slot) {
+        int mask = ids.length - 1;
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (ids[i] != NONE) {
+            int home = hash(ids[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                ids[hole] = ids[i];
+                heads[hole] = heads[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[hole] = NONE;
+    }
+
+    /**
+     * Moves all ids to a larger table.
+     * @param capacity the number of slots of the new table.
+     */
+    private void rehash(int capacity) {
+        int[] oldIds = ids;
+        int[] oldHeads = heads;
+        ids = new int[capacity];
+        Arrays.fill(ids, NONE);
+        heads = new int[capacity];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != NONE) {
+                int slot = find(oldIds[i]);
+                ids[slot] = oldIds[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of an id, so consecutive ids don't form long runs in the table.
+     * @param id the id.
+     * @return the hash of the id.
+     */
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
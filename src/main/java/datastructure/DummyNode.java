@@ -54,11 +54,39 @@ public class DummyNode {
     }
 
     /**
-     * Gets the absolute id of this DummyNode.
-     * @return the absolute id of this DummyNode.
+     * Gets the key of the long edge this DummyNode is part of.
+     * @return the key of the edge from the origin to the destination of this DummyNode.
      */
-    public double getAbsId() {
-        return Double.parseDouble(Integer.toString(id) + Integer.toString(from) + Integer.toString(to));
+    public long getKey() {
+        return edgeKey(from, to);
+    }
+
+    /**
+     * Computes the key of a long edge. Keys of edges are negative, so they can be stored with the ids of nodes.
+     * @param from The id of the origin of the edge, at least -1.
+     * @param to The id of the destination of the edge, at least -1.
+     * @return The key of the edge.
+     */
+    public static long edgeKey(int from, int to) {
+        return Long.MIN_VALUE | ((long) (from + 1) << 31) | (to + 1);
+    }
+
+    /**
+     * Gets the origin of a long edge.
+     * @param key The key of the edge.
+     * @return The id of the origin of the edge.
+     */
+    public static int keyFrom(long key) {
+        return (int) ((key >>> 31) & Integer.MAX_VALUE) - 1;
+    }
+
+    /**
+     * Gets the destination of a long edge.
+     * @param key The key of the edge.
+     * @return The id of the destination of the edge.
+     */
+    public static int keyTo(long key) {
+        return (int) (key & Integer.MAX_VALUE) - 1;
     }
 
     /**
@@ -0,0 +1,244 @@
+package datastructure;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped index of the genomes going through every node.
+ * The index stores a bitset of genomes for every node and a bitset of nodes for every genome,
+ * so both directions are answered without scanning the graph.
+ */
+public class GenomeDB {
+    /**
+     * Magic number at the start of a genome index.
+     */
+    static final int MAGIC = 0x4350474D;
+
+    /**
+     * Version of the genome index format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header of a genome index in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Maximal number of bytes mapped at once.
+     */
+    static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * The location of the index.
+     */
+    private String dbLoc;
+
+    /**
+     * Number of nodes in the index.
+     */
+    private int nodeCount;
+
+    /**
+     * Names of all genomes.
+     */
+    private String[] names;
+
+    /**
+     * Number of longs in the bitset of a node.
+     */
+    private int genomeWords;
+
+    /**
+     * Number of longs in the bitset of a genome.
+     */
+    private int nodeWords;
+
+    /**
+     * The node bitsets, mapped in windows of at most WINDOW_SIZE bytes.
+     */
+    private ByteBuffer[] rows;
+
+    /**
+     * The genome bitsets, mapped in windows of at most WINDOW_SIZE bytes.
+     */
+    private ByteBuffer[] columns;
+
+    /**
+     * Constructor for GenomeDB.
+     * @param dbLocation the location of the index written by {@link GenomeDBWriter}.
+     */
+    public GenomeDB(String dbLocation) {
+        this.dbLoc = dbLocation;
+    }
+
+    /**
+     * Returns the number of longs needed for a bitset.
+     * @param bits the number of bits in the bitset.
+     * @return the number of longs.
+     */
+    static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Getter for the number of genomes.
+     * @return the number of genomes in the index, 0 if it can't be read.
+     */
+    public int getGenomeCount() {
+        if (!open()) {
+            return 0;
+        }
+        return names.length;
+    }
+
+    /**
+     * Getter for the name of a genome.
+     * @param genome the index of the genome.
+     * @return the name of the genome.
+     */
+    public String getGenomeName(int genome) {
+        if (!open()) {
+            return null;
+        }
+        return names[genome];
+    }
+
+    /**
+     * Checks whether a genome goes through a node.
+     * @param node the id of the node.
+     * @param genome the index of the genome.
+     * @return true iff the genome goes through the node.
+     */
+    public boolean contains(int node, int genome) {
+        if (!open() || node < 0 || node >= nodeCount || genome < 0 || genome >= names.length) {
+            return false;
+        }
+        long word = getWord(rows, (long) node * genomeWords + (genome >> 6));
+        return (word & (1L << genome)) != 0;
+    }
+
+    /**
+     * Gets the genomes going through a node.
+     * @param node the id of the node.
+     * @return the indices of the genomes in increasing order.
+     */
+    public int[] getGenomes(int node) {
+        if (!open() || node < 0 || node >= nodeCount) {
+            return new int[0];
+        }
+        return getBits(rows, (long) node * genomeWords, genomeWords);
+    }
+
+    /**
+     * Gets the nodes a genome goes through.
+     * @param genome the index of the genome.
+     * @return the ids of the nodes in increasing order.
+     */
+    public int[] getNodes(int genome) {
+        if (!open() || genome < 0 || genome >= names.length) {
+            return new int[0];
+        }
+        return getBits(columns, (long) genome * nodeWords, nodeWords);
+    }
+
+    /**
+     * Collects the set bits of a bitset.
+     * @param buffers the windows containing the bitset.
+     * @param first the index of the first long of the bitset.
+     * @param length the number of longs in the bitset.
+     * @return the indices of the set bits in increasing order.
+     */
+    private int[] getBits(ByteBuffer[] buffers, long first, int length) {
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            size += Long.bitCount(getWord(buffers, first + i));
+        }
+        int[] result = new int[size];
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            long word = getWord(buffers, first + i);
+            while (word != 0) {
+                result[index++] = 64 * i + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a long from mapped windows.
+     * @param buffers the windows.
+     * @param index the index of the long.
+     * @return the long.
+     */
+    private long getWord(ByteBuffer[] buffers, long index) {
+        long offset = index << 3;
+        return buffers[(int) (offset / WINDOW_SIZE)].getLong((int) (offset % WINDOW_SIZE));
+    }
+
+    /**
+     * Opens the index the first time it is queried.
+     * @return true iff the index can be read.
+     */
+    private synchronized boolean open() {
+        if (rows != null) {
+            return true;
+        }
+        try {
+            RandomAccessFile raf = new RandomAccessFile(dbLoc, "r");
+            FileChannel fc = raf.getChannel();
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+                raf.close();
+                throw new IOException("Genome index " + dbLoc + " is incomplete");
+            }
+            if (raf.readInt() != VERSION) {
+                raf.close();
+                throw new IOException("Unsupported genome index version in " + dbLoc);
+            }
+            nodeCount = raf.readInt();
+            int genomeCount = raf.readInt();
+            long columnsOffset = raf.readLong();
+            long namesOffset = raf.readLong();
+            genomeWords = words(genomeCount);
+            nodeWords = words(nodeCount);
+
+            raf.seek(namesOffset);
+            DataInputStream in = new DataInputStream(Channels.newInputStream(fc));
+            String[] genomes = new String[genomeCount];
+            for (int i = 0; i < genomeCount; i++) {
+                genomes[i] = in.readUTF();
+            }
+            columns = map(fc, columnsOffset, namesOffset - columnsOffset);
+            rows = map(fc, HEADER_SIZE, columnsOffset - HEADER_SIZE);
+            names = genomes;
+            raf.close();
+            return true;
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Maps a section of the index in windows of at most WINDOW_SIZE bytes.
+     * @param fc the channel of the index.
+     * @param offset the offset of the section.
+     * @param size the size of the section.
+     * @return the windows of the section.
+     * @throws IOException when the index can't be mapped.
+     */
+    private ByteBuffer[] map(FileChannel fc, long offset, long size) throws IOException {
+        ByteBuffer[] windows = new ByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+        for (int i = 0; i < windows.length; i++) {
+            long start = (long) i * WINDOW_SIZE;
+            windows[i] = fc.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(WINDOW_SIZE, size - start));
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,165 @@
+package datastructure;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Writes the genome membership index read by {@link GenomeDB}.
+ * The genomes of every node are appended as a bitset in the order of the node ids,
+ * the bitsets of the genomes and their names are written when the writer is closed.
+ */
+public class GenomeDBWriter {
+    /**
+     * The location of the index.
+     */
+    private String dbLoc;
+
+    /**
+     * Stream the header placeholder and the node bitsets are written to.
+     */
+    private DataOutputStream out;
+
+    /**
+     * Names of all genomes.
+     */
+    private String[] names;
+
+    /**
+     * Number of longs in the bitset of a node.
+     */
+    private int words;
+
+    /**
+     * Reusable bitset of the node that is being written.
+     */
+    private long[] row;
+
+    /**
+     * Number of nodes written so far.
+     */
+    private int count;
+
+    /**
+     * Constructor for GenomeDBWriter.
+     * @param dbLocation the location of the index.
+     * @param genomes the names of all genomes, a genome is identified by its index in this array.
+     * @throws IOException when the index can't be created.
+     */
+    public GenomeDBWriter(String dbLocation, String[] genomes) throws IOException {
+        this.dbLoc = dbLocation;
+        this.names = genomes;
+        this.words = GenomeDB.words(genomes.length);
+        this.row = new long[words];
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dbLocation), 1 << 20));
+        out.write(new byte[GenomeDB.HEADER_SIZE]);
+    }
+
+    /**
+     * Appends the genomes of the next node to the index.
+     * Genomes outside the range of known genomes are ignored.
+     * @param genomes the indices of the genomes going through the node.
+     * @param length the number of indices in genomes.
+     * @throws IOException when the index can't be written.
+     */
+    public void addNode(int[] genomes, int length) throws IOException {
+        addNode(genomes, 0, length);
+    }
+
+    /**
+     * Appends the genomes of the next node to the index.
+     * Genomes outside the range of known genomes are ignored.
+     * @param genomes the array containing the indices of the genomes going through the node.
+     * @param offset the offset of the first index in genomes.
+     * @param length the number of indices.
+     * @throws IOException when the index can't be written.
+     */
+    public void addNode(int[] genomes, int offset, int length) throws IOException {
+        Arrays.fill(row, 0L);
+        for (int i = offset; i < offset + length; i++) {
+            int genome = genomes[i];
+            if (genome >= 0 && genome < names.length) {
+                row[genome >> 6] |= 1L << genome;
+            }
+        }
+        for (long word : row) {
+            out.writeLong(word);
+        }
+        count++;
+    }
+
+    /**
+     * Writes the bitsets of the genomes, the names and the header and closes the index.
+     * The node bitsets are transposed 64 genomes at a time, so every node bitset is read once per block.
+     * @throws IOException when the index can't be written.
+     */
+    public void close() throws IOException {
+        out.close();
+
+        RandomAccessFile raf = new RandomAccessFile(dbLoc, "rw");
+        FileChannel channel = raf.getChannel();
+        int nodeWords = GenomeDB.words(count);
+        long columnsOffset = GenomeDB.HEADER_SIZE + 8L * words * count;
+        int rowsPerWindow = Math.max(1, GenomeDB.WINDOW_SIZE / Math.max(1, 8 * words));
+        long[][] columns = new long[64][nodeWords];
+        ByteBuffer column = ByteBuffer.allocate(8 * nodeWords);
+        for (int w = 0; w < words; w++) {
+            for (long[] c : columns) {
+                Arrays.fill(c, 0L);
+            }
+            for (int first = 0; first < count; first += rowsPerWindow) {
+                int rows = Math.min(rowsPerWindow, count - first);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        GenomeDB.HEADER_SIZE + 8L * words * first, 8L * words * rows);
+                for (int i = 0; i < rows; i++) {
+                    long word = window.getLong(8 * (i * words + w));
+                    while (word != 0) {
+                        int bit = Long.numberOfTrailingZeros(word);
+                        int node = first + i;
+                        columns[bit][node >> 6] |= 1L << node;
+                        word &= word - 1;
+                    }
+                }
+            }
+            int genomes = Math.min(64, names.length - 64 * w);
+            for (int g = 0; g < genomes; g++) {
+                column.clear();
+                column.asLongBuffer().put(columns[g]);
+                long position = columnsOffset + 8L * nodeWords * (64L * w + g);
+                while (column.hasRemaining()) {
+                    position += channel.write(column, position);
+                }
+            }
+        }
+
+        long namesOffset = columnsOffset + 8L * nodeWords * names.length;
+        raf.seek(namesOffset);
+        for (String name : names) {
+            raf.writeUTF(name);
+        }
+        raf.seek(0);
+        raf.writeInt(GenomeDB.MAGIC);
+        raf.writeInt(GenomeDB.VERSION);
+        raf.writeInt(count);
+        raf.writeInt(names.length);
+        raf.writeLong(columnsOffset);
+        raf.writeLong(namesOffset);
+        raf.close();
+    }
+
+    /**
+     * Closes the index without finishing it and deletes it, so no partial file is left behind.
+     * @throws IOException when the index can't be deleted.
+     */
+    public void abort() throws IOException {
+        out.close();
+        Files.deleteIfExists(Paths.get(dbLoc));
+    }
+}
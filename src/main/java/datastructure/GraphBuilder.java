@@ -0,0 +1,171 @@
+package datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Collects the nodes and edges of a graph while it is parsed.
+ * Edges are appended to growable primitive buffers and only sorted per node
+ * when the graph is built, so adding an edge takes amortized constant time.
+ * A thread that adds to the builder while another thread takes snapshots must hold the lock of the builder.
+ */
+public class GraphBuilder {
+    /**
+     * Number of nodes added so far, including nodes only referenced by an edge.
+     */
+    private int size;
+
+    /**
+     * The scaled length of every node.
+     */
+    private int[] lengths;
+
+    /**
+     * Number of edges added so far.
+     */
+    private int edges;
+
+    /**
+     * Origin of every edge in order of insertion.
+     */
+    private int[] edgeFrom;
+
+    /**
+     * Destination of every edge in order of insertion.
+     */
+    private int[] edgeTo;
+
+    /**
+     * Empty constructor for GraphBuilder.
+     */
+    public GraphBuilder() {
+        this(1024);
+    }
+
+    /**
+     * Constructor for GraphBuilder presized for the expected number of nodes.
+     * Variation graphs have one to two edges per node, so room for twice as many edges is reserved.
+     * @param expectedNodes the number of nodes the graph is expected to contain.
+     */
+    public GraphBuilder(int expectedNodes) {
+        int capacity = Math.max(16, expectedNodes);
+        lengths = new int[capacity];
+        edgeFrom = new int[2 * capacity];
+        edgeTo = new int[2 * capacity];
+    }
+
+    /**
+     * Adds a node to the graph.
+     * @param id The id of the node.
+     * @param length The length of the segment of the node.
+     */
+    public void addNode(int id, int length) {
+        ensureNodes(id + 1);
+        lengths[id] = Node.scaleLength(length);
+    }
+
+    /**
+     * Adds an edge to the graph.
+     * @param from Origin node of the edge.
+     * @param to Destination node of the edge.
+     */
+    public void addEdge(final int from, final int to) {
+        ensureNodes(Math.max(from, to) + 1);
+        if (edges == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edges * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+        }
+        edgeFrom[edges] = from;
+        edgeTo[edges] = to;
+        edges++;
+    }
+
+    /**
+     * Returns the amount of nodes.
+     * @return the number of nodes added so far.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Makes sure the graph contains at least the given number of nodes.
+     * @param count the number of nodes needed.
+     */
+    private void ensureNodes(int count) {
+        if (count > lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(count, lengths.length * 2));
+        }
+        size = Math.max(size, count);
+    }
+
+    /**
+     * Builds the compact store of the graph.
+     * The edges of every node keep the order in which they were added.
+     * @return a GraphStore containing all nodes and edges added so far.
+     */
+    public GraphStore build() {
+        if (lengths.length != size) {
+            lengths = Arrays.copyOf(lengths, size);
+        }
+        return toStore(lengths, size, edgeFrom, edgeTo, edges);
+    }
+
+    /**
+     * Builds a compact store of the first nodes added so far, the builder can still be extended after this.
+     * Only edges between two of these nodes are kept.
+     * The edge buffers are only appended to, so the lock is held while reading their size
+     * and the store is sorted without blocking the thread that adds to the builder.
+     * @param limit the number of nodes in the snapshot.
+     * @return a GraphStore containing the nodes with an id below limit.
+     */
+    public GraphStore snapshot(int limit) {
+        int count;
+        int[] nodeLengths;
+        int[] from;
+        int[] to;
+        int edgeCount;
+        synchronized (this) {
+            count = Math.max(0, Math.min(limit, size));
+            nodeLengths = Arrays.copyOf(lengths, count);
+            from = edgeFrom;
+            to = edgeTo;
+            edgeCount = edges;
+        }
+        return toStore(nodeLengths, count, from, to, edgeCount);
+    }
+
+    /**
+     * Sorts the edges between the first nodes into compressed sparse row layout.
+     * @param nodeLengths the scaled lengths of the nodes in the store.
+     * @param count the number of nodes in the store.
+     * @param from the origin of every edge.
+     * @param to the destination of every edge.
+     * @param edgeCount the number of edges in from and to.
+     * @return a GraphStore containing the nodes with an id below count.
+     */
+    private static GraphStore toStore(int[] nodeLengths, int count, int[] from, int[] to, int edgeCount) {
+        int[] outOffsets = new int[count + 1];
+        int[] inOffsets = new int[count + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            if (from[i] < count && to[i] < count) {
+                outOffsets[from[i] + 1]++;
+                inOffsets[to[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] outTargets = new int[outOffsets[count]];
+        int[] inTargets = new int[inOffsets[count]];
+        int[] outNext = Arrays.copyOf(outOffsets, count);
+        int[] inNext = Arrays.copyOf(inOffsets, count);
+        for (int i = 0; i < edgeCount; i++) {
+            if (from[i] < count && to[i] < count) {
+                outTargets[outNext[from[i]]++] = to[i];
+                inTargets[inNext[to[i]]++] = from[i];
+            }
+        }
+        return new GraphStore(nodeLengths, outOffsets, outTargets, inOffsets, inTargets);
+    }
+}
@@ -0,0 +1,207 @@
+package datastructure;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage of the topology of a graph in compressed sparse row layout.
+ * The edges of node i are stored in the target arrays
+ * between offsets[i] (inclusive) and offsets[i + 1] (exclusive).
+ */
+public class GraphStore {
+    /**
+     * The length of every node.
+     */
+    private final int[] lengths;
+
+    /**
+     * Start of the outgoing edges of every node in outTargets, followed by the total number of outgoing edges.
+     */
+    private final int[] outOffsets;
+
+    /**
+     * Ids on the other end of the outgoing edges of all nodes.
+     */
+    private final int[] outTargets;
+
+    /**
+     * Start of the incoming edges of every node in inTargets, followed by the total number of incoming edges.
+     */
+    private final int[] inOffsets;
+
+    /**
+     * Ids on the other end of the incoming edges of all nodes.
+     */
+    private final int[] inTargets;
+
+    /**
+     * Constructor for GraphStore.
+     * @param lengths the length of every node.
+     * @param outOffsets the offsets of the outgoing edges of every node.
+     * @param outTargets the ids on the other end of the outgoing edges.
+     * @param inOffsets the offsets of the incoming edges of every node.
+     * @param inTargets the ids on the other end of the incoming edges.
+     */
+    public GraphStore(final int[] lengths,
+                      final int[] outOffsets,
+                      final int[] outTargets,
+                      final int[] inOffsets,
+                      final int[] inTargets) {
+        this.lengths = lengths;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inTargets = inTargets;
+    }
+
+    /**
+     * Creates a GraphStore containing the given nodes.
+     * @param nodes the nodes of the graph, indexed by id.
+     * @return a GraphStore with the same topology as the nodes.
+     */
+    public static GraphStore fromNodes(List<Node> nodes) {
+        int size = nodes.size();
+        int[] lengths = new int[size];
+        int[] outOffsets = new int[size + 1];
+        int[] inOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            lengths[i] = node.getLength();
+            outOffsets[i + 1] = outOffsets[i] + node.getOutgoingEdges().length;
+            inOffsets[i + 1] = inOffsets[i] + node.getIncomingEdges().length;
+        }
+        int[] outTargets = new int[outOffsets[size]];
+        int[] inTargets = new int[inOffsets[size]];
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            System.arraycopy(node.getOutgoingEdges(), 0, outTargets, outOffsets[i], outOffsets[i + 1] - outOffsets[i]);
+            System.arraycopy(node.getIncomingEdges(), 0, inTargets, inOffsets[i], inOffsets[i + 1] - inOffsets[i]);
+        }
+        return new GraphStore(lengths, outOffsets, outTargets, inOffsets, inTargets);
+    }
+
+    /**
+     * Returns the amount of nodes.
+     * @return the number of nodes in the store.
+     */
+    public int getSize() {
+        return lengths.length;
+    }
+
+    /**
+     * Getter for the length of a node.
+     * @param id the id of the node.
+     * @return the length of the node.
+     */
+    public int getLength(int id) {
+        return lengths[id];
+    }
+
+    /**
+     * Returns the number of outgoing edges of a node.
+     * @param id the id of the node.
+     * @return the out-degree of the node.
+     */
+    public int getOutDegree(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    /**
+     * Returns the node on the other end of an outgoing edge without copying the edges of the node.
+     * @param id the id of the node.
+     * @param k the position of the edge, between 0 and the out-degree of the node.
+     * @return the id of the destination of the edge.
+     */
+    public int getOutTarget(int id, int k) {
+        return outTargets[outOffsets[id] + k];
+    }
+
+    /**
+     * Returns the number of incoming edges of a node.
+     * @param id the id of the node.
+     * @return the in-degree of the node.
+     */
+    public int getInDegree(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    /**
+     * Returns the node on the other end of an incoming edge without copying the edges of the node.
+     * @param id the id of the node.
+     * @param k the position of the edge, between 0 and the in-degree of the node.
+     * @return the id of the origin of the edge.
+     */
+    public int getInTarget(int id, int k) {
+        return inTargets[inOffsets[id] + k];
+    }
+
+    /**
+     * Getter for the outgoing edges of a node.
+     * The edges are copied, loops over the edges use getOutDegree and getOutTarget instead.
+     * @param id the id of the node.
+     * @return the ids of the outgoing edges from the node.
+     */
+    public int[] getOutgoingEdges(int id) {
+        return Arrays.copyOfRange(outTargets, outOffsets[id], outOffsets[id + 1]);
+    }
+
+    /**
+     * Getter for the incoming edges of a node.
+     * The edges are copied, loops over the edges use getInDegree and getInTarget instead.
+     * @param id the id of the node.
+     * @return the ids of the incoming edges to the node.
+     */
+    public int[] getIncomingEdges(int id) {
+        return Arrays.copyOfRange(inTargets, inOffsets[id], inOffsets[id + 1]);
+    }
+
+    /**
+     * Returns a view of a node in the store.
+     * A new Node is created on every call, so it is not used while laying out the graph.
+     * @param id the id of the node.
+     * @return a Node with the length and edges of the node.
+     */
+    public Node getNode(int id) {
+        return new Node(getLength(id), getOutgoingEdges(id), getIncomingEdges(id));
+    }
+
+    /**
+     * Getter for the lengths of all nodes.
+     * @return the length of every node.
+     */
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    /**
+     * Getter for the offsets of the outgoing edges.
+     * @return the offsets of the outgoing edges of every node.
+     */
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * Getter for the targets of the outgoing edges.
+     * @return the ids on the other end of all outgoing edges.
+     */
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+
+    /**
+     * Getter for the offsets of the incoming edges.
+     * @return the offsets of the incoming edges of every node.
+     */
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Getter for the targets of the incoming edges.
+     * @return the ids on the other end of all incoming edges.
+     */
+    public int[] getInTargets() {
+        return inTargets;
+    }
+}
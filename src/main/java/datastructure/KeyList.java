@@ -0,0 +1,80 @@
+package datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive keys, used for the ids of the nodes and dummy edges at the border of a drawing.
+ * Ids of nodes are stored as they are, keys of dummy edges are negative.
+ */
+final class KeyList {
+    /**
+     * The keys, only the first size entries are used.
+     */
+    private long[] keys;
+
+    /**
+     * The number of keys in the list.
+     */
+    private int size;
+
+    /**
+     * Constructor for an empty KeyList.
+     */
+    KeyList() {
+        keys = new long[8];
+        size = 0;
+    }
+
+    /**
+     * Adds a key at the end of the list.
+     * @param key the key.
+     */
+    void add(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+        }
+        keys[size] = key;
+        size++;
+    }
+
+    /**
+     * Gets a key from the list.
+     * @param index the position of the key.
+     * @return the key.
+     */
+    long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " with size " + size);
+        }
+        return keys[index];
+    }
+
+    /**
+     * Checks whether a key is in the list.
+     * @param key the key.
+     * @return true iff the list contains the key.
+     */
+    boolean contains(long key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the amount of keys.
+     * @return the number of keys in the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all keys from the list.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -150,10 +150,19 @@ public class Node {
      * Applies scaling to the length of the node.
      */
     public void computeLength() {
+        length = scaleLength(length);
+    }
+
+    /**
+     * Scales the length of a segment to the length of its node.
+     * @param length the length of the segment.
+     * @return the scaled length.
+     */
+    public static int scaleLength(int length) {
         if (length < 0) {
             length = 0;
         }
-        length = Math.max(10, Math.min(255, (int) Math.sqrt((double) length)));
+        return Math.max(10, Math.min(255, (int) Math.sqrt((double) length)));
     }
 
     /**
@@ -4,8 +4,11 @@ import javafx.scene.paint.Color;
 import javafx.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
 import java.util.TreeSet;
@@ -16,34 +19,70 @@ import java.util.TreeSet;
  */
 public class NodeGraph {
     /**
-     * List of nodes.
+     * List of nodes while the graph is being built.
      */
     private ArrayList<Node> nodes;
 
+    /**
+     * Compact storage of the nodes once the graph is complete.
+     */
+    private volatile GraphStore store;
+
+    /**
+     * Snapshot of the nodes parsed so far, used instead of the store by the thread drawing it while the graph is loading.
+     */
+    private final ThreadLocal<GraphStore> view = new ThreadLocal<>();
+
+    /**
+     * True while the graph is being parsed.
+     */
+    private boolean loading;
+
+    /**
+     * Builder the parser adds the nodes to while the graph is loading, null if it can't be read from.
+     */
+    private GraphBuilder builder;
+
+    /**
+     * Number of nodes whose segment and edges have been parsed while the graph is loading.
+     */
+    private int watermark;
+
     /**
      * Database containing the segments of the nodes.
      */
     private SegmentDB segments;
 
+    /**
+     * Index of the genomes going through the nodes.
+     */
+    private GenomeDB genomes;
+
     /**
      * LinkedList of the nodes that need to be drawn.
      */
     private LinkedList<DrawNode> drawNodes;
 
+    /**
+     * The DrawNodes by the id of the node they represent in the order of drawNodes,
+     * null if it has to be built from drawNodes.
+     */
+    private DrawIndex drawIndex;
+
     /**
      * LinkedList of the dummynodes.
      */
     private LinkedList<DummyNode> dummyNodes;
 
     /**
-     * LinkedList of the nodes that are in the first layer.
+     * Ids of the nodes and keys of the dummy edges that are in the first layer.
      */
-    private LinkedList<Double> rootNodes;
+    private KeyList rootNodes;
 
     /**
-     * LinkedList of the nodes that are in the last layer.
+     * Ids of the nodes and keys of the dummy edges that are in the last layer.
      */
-    private LinkedList<Double> leafNodes;
+    private KeyList leafNodes;
 
     /**
      * Instance of the current graph.
@@ -133,9 +172,245 @@ public class NodeGraph {
      * @return The node.
      */
     public Node getNode(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getNode(id);
+        }
         return nodes.get(id);
     }
 
+    /**
+     * Returns the length of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @return The length of the node.
+     */
+    public int getLength(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getLength(id);
+        }
+        return nodes.get(id).getLength();
+    }
+
+    /**
+     * Returns the outgoing edges of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @return The ids of the outgoing edges from the node.
+     */
+    public int[] getOutgoingEdges(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getOutgoingEdges(id);
+        }
+        return nodes.get(id).getOutgoingEdges();
+    }
+
+    /**
+     * Returns the number of outgoing edges of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @return The out-degree of the node.
+     */
+    public int getOutDegree(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getOutDegree(id);
+        }
+        return nodes.get(id).getOutgoingEdges().length;
+    }
+
+    /**
+     * Returns the destination of an outgoing edge of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @param k The position of the edge, below the out-degree of the node.
+     * @return The id of the node the edge leads to.
+     */
+    public int getOutTarget(int id, int k) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getOutTarget(id, k);
+        }
+        return nodes.get(id).getOutgoingEdges()[k];
+    }
+
+    /**
+     * Returns the number of incoming edges of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @return The in-degree of the node.
+     */
+    public int getInDegree(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getInDegree(id);
+        }
+        return nodes.get(id).getIncomingEdges().length;
+    }
+
+    /**
+     * Returns the origin of an incoming edge of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @param k The position of the edge, below the in-degree of the node.
+     * @return The id of the node the edge comes from.
+     */
+    public int getInTarget(int id, int k) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getInTarget(id, k);
+        }
+        return nodes.get(id).getIncomingEdges()[k];
+    }
+
+    /**
+     * Returns the incoming edges of the node corresponding to the provided id.
+     * @param id The id of the node.
+     * @return The ids of the incoming edges to the node.
+     */
+    public int[] getIncomingEdges(int id) {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getIncomingEdges(id);
+        }
+        return nodes.get(id).getIncomingEdges();
+    }
+
+    /**
+     * Moves the nodes added so far into the compact store.
+     * The graph can't be extended after this.
+     */
+    public void freeze() {
+        store = GraphStore.fromNodes(nodes);
+        nodes = null;
+    }
+
+    /**
+     * Getter for the compact store of the graph.
+     * @return the GraphStore, or null if the graph is not frozen yet.
+     */
+    public GraphStore getStore() {
+        return store;
+    }
+
+    /**
+     * Gets the store the current thread works on.
+     * @return the snapshot set for this thread, otherwise the store of the graph, null if the graph is not frozen yet.
+     */
+    private GraphStore current() {
+        GraphStore snapshot = view.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return store;
+    }
+
+    /**
+     * Makes the current thread work on a snapshot of the graph instead of its store.
+     * The snapshot is only seen by this thread, so other threads keep working on the complete graph.
+     * @param snapshot the snapshot returned by awaitNodes, null to go back to the store of the graph.
+     */
+    public void setView(GraphStore snapshot) {
+        if (snapshot == null) {
+            view.remove();
+        } else {
+            view.set(snapshot);
+        }
+    }
+
+    /**
+     * Sets the compact store of the graph.
+     * @param graphStore the GraphStore holding all nodes of this graph.
+     */
+    public synchronized void setStore(GraphStore graphStore) {
+        store = graphStore;
+        nodes = null;
+        loading = false;
+        builder = null;
+        notifyAll();
+    }
+
+    /**
+     * Marks the graph as loading until its store is set.
+     * @param graphBuilder the builder the parser adds the nodes to, null if nodes can't be read before the end.
+     */
+    public synchronized void startLoading(GraphBuilder graphBuilder) {
+        loading = true;
+        builder = graphBuilder;
+        watermark = 0;
+    }
+
+    /**
+     * Publishes how far the graph has been parsed.
+     * GFA files list the links of a segment right after it, so all nodes below the last parsed segment are complete.
+     * @param count the number of nodes whose segment and edges have been parsed.
+     */
+    public synchronized void setWatermark(int count) {
+        watermark = count;
+        notifyAll();
+    }
+
+    /**
+     * Getter for the number of nodes that have been parsed.
+     * @return the number of complete nodes while loading, the size of the graph otherwise.
+     */
+    public synchronized int getWatermark() {
+        if (loading) {
+            return watermark;
+        }
+        return getSize();
+    }
+
+    /**
+     * Stops waiting for the graph, used when parsing ends without a store.
+     */
+    public synchronized void stopLoading() {
+        loading = false;
+        builder = null;
+        notifyAll();
+    }
+
+    /**
+     * Checks whether the graph is still being parsed.
+     * @return true until the store of the graph is set or the parsing stops.
+     */
+    public synchronized boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Waits until the first nodes of the graph have been parsed.
+     * While the graph is still loading a snapshot of the nodes parsed so far is returned,
+     * so a neighbourhood at the start of the file can be drawn before the whole file is parsed.
+     * The snapshot only contains the edges between parsed nodes, the graph itself is not changed.
+     * @param count the number of nodes needed.
+     * @return a snapshot of the parsed nodes, or null if the graph is no longer loading.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public GraphStore awaitNodes(int count) throws InterruptedException {
+        GraphBuilder source;
+        int limit;
+        synchronized (this) {
+            while (loading && (builder == null || watermark < count)) {
+                wait();
+            }
+            if (!loading) {
+                return null;
+            }
+            source = builder;
+            limit = watermark;
+        }
+        return source.snapshot(limit);
+    }
+
+    /**
+     * Waits until the graph is no longer loading.
+     * @return the store of the graph, null if the parsing stopped without one.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public synchronized GraphStore awaitStore() throws InterruptedException {
+        while (loading) {
+            wait();
+        }
+        return store;
+    }
+
     /**
      * Getter for the instance of this graph.
      * @return The graph we are workig with at this moment.
@@ -154,9 +429,18 @@ public class NodeGraph {
 
      /**
      * Returns the amount of nodes.
-     * @return the size of the graph.
+     * @return the size of the graph, or the number of nodes parsed so far while the graph is loading.
      */
     public int getSize() {
+        GraphStore graph = current();
+        if (graph != null) {
+            return graph.getSize();
+        }
+        synchronized (this) {
+            if (loading) {
+                return watermark;
+            }
+        }
         return nodes.size();
     }
 
@@ -169,15 +453,24 @@ public class NodeGraph {
     }
 
     /**
-     * Getter for the list of nodes.
-     * @return the list of all nodes in the graph.
+     * Getter for the index of the genomes going through the nodes.
+     * @return the GenomeDB of the graph, null if there is none.
      */
-    public ArrayList<Node> getNodes() {
-        return this.nodes;
+    public GenomeDB getGenomeDB() {
+        return genomes;
+    }
+
+    /**
+     * Sets the genomedb to a new genomeDB.
+     * @param db The new genomeDB.
+     */
+    public void setGenomeDB(GenomeDB db) {
+        genomes = db;
     }
 
     /**
      * Generates the list of DrawNodes based on center node id and radius.
+     * Stops early when the thread is interrupted because the drawing has been superseded.
      * @param center Id of the center nodes.
      * @param radius Radius (amount of nodes required).
      */
@@ -186,22 +479,27 @@ public class NodeGraph {
         dummyNodes = new LinkedList<>();
         TreeSet<Integer> visited = new TreeSet<>();
         Queue<Integer> q = new LinkedList<>();
-        int r = Math.min(radius, nodes.size());
+        int r = Math.min(radius, getSize());
+        drawIndex = new DrawIndex(r);
         visited.add(center);
         q.offer(center);
         int current;
         DrawNode drawNode;
 
-        while (drawNodes.size() < r) {
+        while (drawNodes.size() < r && !q.isEmpty() && !Thread.currentThread().isInterrupted()) {
             current = q.poll();
             addEdges(current, q, visited);
             drawNode = new DrawNode(current);
-            drawNode.setWidth(nodes.get(current).getLength());
+            drawNode.setWidth(getLength(current));
             drawNode.setFill(Color.CRIMSON);
             drawNode.setHeight(10);
             drawNodes.addLast(drawNode);
+            indexDrawNode(drawNode, false);
         }
-        topoSort();
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        drawNodes = topoSort(drawNodes);
         assignLayers();
         computeDummyNodes();
         verticalSpacing();
@@ -215,18 +513,20 @@ public class NodeGraph {
      * @param visited The set of nodes already visited.
      */
     private void addEdges(int id, Queue<Integer> q, TreeSet<Integer> visited) {
-        int[] tempEdges = nodes.get(id).getIncomingEdges();
+        int degree = getInDegree(id);
 
-        for (int i : tempEdges) {
+        for (int k = 0; k < degree; k++) {
+            int i = getInTarget(id, k);
             if (!visited.contains(i)) {
                 visited.add(i);
                 q.add(i);
             }
         }
 
-        tempEdges = nodes.get(id).getOutgoingEdges();
+        degree = getOutDegree(id);
 
-        for (int i : tempEdges) {
+        for (int k = 0; k < degree; k++) {
+            int i = getOutTarget(id, k);
             if (!visited.contains(i)) {
                 visited.add(i);
                 q.add(i);
@@ -235,94 +535,101 @@ public class NodeGraph {
     }
 
     /**
-     * Sort the drawNodes.
+     * Sorts nodes topologically, every node comes after the nodes its outgoing edges lead to.
+     * The depth-first search starts at the nodes in their current order and keeps its own stack,
+     * nodes are looked up by id in a map so the sort is linear in the nodes and their edges.
+     * @param dNodes the nodes to sort.
+     * @return the sorted nodes.
      */
-    private void topoSort() {
-        LinkedList<DrawNode> sorted = new LinkedList<>();
-        while (!drawNodes.isEmpty()) {
-            topoSortUtil(drawNodes.getFirst(), sorted);
+    private LinkedList<DrawNode> topoSort(List<DrawNode> dNodes) {
+        ArrayList<DrawNode> unsorted = new ArrayList<>(dNodes);
+        int size = unsorted.size();
+        HashMap<Integer, Integer> positions = new HashMap<>(2 * size);
+        for (int i = 0; i < size; i++) {
+            positions.put(unsorted.get(i).getIndex(), i);
         }
-        drawNodes = sorted;
-    }
-
-    /**
-     * Sort the nodes to be drawn.
-     * @param dNodes the nodes to be drawn.
-     * @return the updated list of nodes.
-     */
-    private LinkedList<DrawNode> newTopoSort(LinkedList<DrawNode> dNodes) {
         LinkedList<DrawNode> sorted = new LinkedList<>();
-        while (!dNodes.isEmpty()) {
-            newTopoSortUtil(dNodes.getFirst(), sorted, dNodes);
-        }
-        dNodes = sorted;
-        return dNodes;
-    }
-
-    /**
-     * Recursive method for topological sorting.
-     * @param current current node.
-     * @param sorted current list of sorted nodes.
-     * @param dNodes current list of nodes to be sorted.
-     */
-    private void newTopoSortUtil(DrawNode current, LinkedList<DrawNode> sorted, LinkedList<DrawNode> dNodes) {
-        if (!sorted.contains(current)) {
-            for (int i : nodes.get(current.getIndex()).getOutgoingEdges()) {
-                for (DrawNode temp : dNodes) {
-                    if (temp.getIndex() == i) {
-                        newTopoSortUtil(temp, sorted, dNodes);
-                        break;
-                    }
-                }
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int[] ids = new int[size];
+        int[] degrees = new int[size];
+        int[] next = new int[size];
+        for (int root = 0; root < size; root++) {
+            if (visited[root]) {
+                continue;
             }
-            sorted.addLast(current);
-            dNodes.remove(current);
-        }
-    }
-
-    /**
-     * Recursive part of topoSort.
-     * @param current the current node.
-     * @param sorted the list which holds all sorted nodes.
-     */
-    private void topoSortUtil(DrawNode current, LinkedList<DrawNode> sorted) {
-        if (!sorted.contains(current)) {
-            for (int i : nodes.get(current.getIndex()).getOutgoingEdges()) {
-                for (DrawNode temp : drawNodes) {
-                    if (temp.getIndex() == i) {
-                        topoSortUtil(temp, sorted);
-                        break;
+            visited[root] = true;
+            int depth = 0;
+            stack[0] = root;
+            ids[0] = unsorted.get(root).getIndex();
+            degrees[0] = getOutDegree(ids[0]);
+            next[0] = 0;
+            while (depth >= 0) {
+                if (next[depth] < degrees[depth]) {
+                    Integer child = positions.get(getOutTarget(ids[depth], next[depth]));
+                    next[depth]++;
+                    if (child != null && !visited[child]) {
+                        visited[child] = true;
+                        depth++;
+                        stack[depth] = child;
+                        ids[depth] = unsorted.get(child).getIndex();
+                        degrees[depth] = getOutDegree(ids[depth]);
+                        next[depth] = 0;
                     }
+                } else {
+                    sorted.addLast(unsorted.get(stack[depth]));
+                    depth--;
                 }
             }
-            sorted.addLast(current);
-            drawNodes.remove(current);
         }
+        return sorted;
     }
 
     /**
      * Assigns a layer to all drawNodes in the subgraph.
+     * Every node is placed one layer left of its furthest child, so nodes without children share
+     * the rightmost layer. The layers are computed in one pass over the topological order,
+     * after which the drawNodes are ordered by layer from right to left.
      */
     private void assignLayers() {
-        Iterator<DrawNode> it = drawNodes.iterator();
-        double layer = 1200;
-        DrawNode current;
-
-        while (it.hasNext()) {
-            current = it.next();
+        int size = drawNodes.size();
+        DrawNode[] order = new DrawNode[size];
+        HashMap<Integer, Integer> positions = new HashMap<>(2 * size);
+        int position = 0;
+        for (DrawNode dNode : drawNodes) {
+            order[position] = dNode;
+            positions.put(dNode.getIndex(), position);
+            position++;
+        }
 
-             int size = drawNodes.size();
-             for (int i : nodes.get(current.getIndex()).getOutgoingEdges()) {
-                 for (int j = 0; j < size; j++) {
-                     DrawNode temp = drawNodes.get(j);
-                     if (temp.getIndex() == i && temp.getX() < layer) {
-                         layer = temp.getX();
-                     }
-                 }
-             }
+        int[] layers = new int[size];
+        int maxLayer = 0;
+        for (int i = 0; i < size; i++) {
+            int id = order[i].getIndex();
+            int degree = getOutDegree(id);
+            for (int k = 0; k < degree; k++) {
+                Integer child = positions.get(getOutTarget(id, k));
+                if (child != null && child < i && layers[child] >= layers[i]) {
+                    layers[i] = layers[child] + 1;
+                }
+            }
+            maxLayer = Math.max(maxLayer, layers[i]);
+        }
 
-            current.setX(layer - 100);
+        int[] starts = new int[maxLayer + 2];
+        for (int i = 0; i < size; i++) {
+            starts[layers[i] + 1]++;
         }
+        for (int layer = 1; layer < starts.length; layer++) {
+            starts[layer] += starts[layer - 1];
+        }
+        DrawNode[] sorted = new DrawNode[size];
+        for (int i = 0; i < size; i++) {
+            order[i].setX(1100 - 100 * layers[i]);
+            sorted[starts[layers[i]]] = order[i];
+            starts[layers[i]]++;
+        }
+        drawNodes = new LinkedList<>(Arrays.asList(sorted));
     }
 
     /**
@@ -337,7 +644,9 @@ public class NodeGraph {
         while (it.hasNext()) {
             current = it.next();
 
-            for (int i : nodes.get(current.getIndex()).getOutgoingEdges()) {
+            int degree = getOutDegree(current.getIndex());
+            for (int k = 0; k < degree; k++) {
+                int i = getOutTarget(current.getIndex(), k);
                 for (DrawNode temp : newNodes) {
                     if (temp.getIndex() == i && temp.getX() > layer) {
                         layer = temp.getX();
@@ -360,7 +669,9 @@ public class NodeGraph {
         while (it.hasPrevious()) {
             current = it.previous();
 
-            for (int i : nodes.get(current.getIndex()).getOutgoingEdges()) {
+            int degree = getOutDegree(current.getIndex());
+            for (int k = 0; k < degree; k++) {
+                int i = getOutTarget(current.getIndex(), k);
                 for (DrawNode temp : newNodes) {
                     if (temp.getIndex() == i && temp.getX() < layer) {
                         layer = temp.getX();
@@ -381,7 +692,7 @@ public class NodeGraph {
         DrawNode cDrawNode;
         DummyNode cDummyNode;
         double currentLayer = 1200;
-        int[] edges;
+        int degree;
 
         while (it.hasNext()) {
             current = it.next();
@@ -402,9 +713,10 @@ public class NodeGraph {
                 }
             }
 
-            edges = nodes.get(current.getIndex()).getIncomingEdges();
+            degree = getInDegree(current.getIndex());
 
-            for (int i : edges) {
+            for (int k = 0; k < degree; k++) {
+                int i = getInTarget(current.getIndex(), k);
                 cDrawNode = getDrawNode(i);
                 if (cDrawNode != null && Math.abs(current.getX() - cDrawNode.getX()) > 100) {
                     dummyNodeQueue.add(new DummyNode(-1, cDrawNode.getIndex(), current.getIndex(), (int) currentLayer - 100, 50));
@@ -417,34 +729,28 @@ public class NodeGraph {
 
     /**
      * Computes the Y coordinate of the drawNodes
-     * by looping over all nodes and adding to their Y coordinate
-     * when the X coordinate is the same.
+     * by stacking the dummy nodes and then the nodes of every layer.
+     * Before stacking, the nodes of a layer are ordered by the mean Y coordinate of their children,
+     * which takes one pass over the edges and a sort per layer.
      */
     private void verticalSpacing() {
-        int maxY;
-        for (int i = 0; i < dummyNodes.size(); i++) {
-            maxY = 0;
-            for (int j = i - 1; j >= 0; j--) {
-                if (dummyNodes.get(i).getX() == dummyNodes.get(j).getX() && maxY < dummyNodes.get(j).getY()) {
-                   maxY = dummyNodes.get(j).getY();
-                }
-            }
-            dummyNodes.get(i).setY(maxY + 50);
-        }
-
-        for (int i = 0; i < drawNodes.size(); i++) {
-            if (i > 0 && drawNodes.get(i - 1).getX() == drawNodes.get(i).getX()) {
-                drawNodes.get(i).setY(drawNodes.get(i - 1).getY() + 50);
-            } else {
-                maxY = 0;
-                for (DummyNode dN : dummyNodes) {
-                    if (dN.getX() == (int) drawNodes.get(i).getX()) {
-                        maxY = dN.getY();
-                    }
-                }
-                drawNodes.get(i).setY(maxY + 50);
+        HashMap<Integer, Integer> columns = new HashMap<>();
+        stackDummyNodes(dummyNodes, columns);
+
+        ArrayList<DrawNode> ordered = new ArrayList<>(drawNodes);
+        int start = 0;
+        while (start < ordered.size()) {
+            double layer = ordered.get(start).getX();
+            int end = start + 1;
+            while (end < ordered.size() && ordered.get(end).getX() == layer) {
+                end++;
             }
+            int top = columns.getOrDefault((int) layer, 0);
+            orderByBarycenter(ordered.subList(start, end), top);
+            stackDrawNodes(ordered.subList(start, end), columns);
+            start = end;
         }
+        drawNodes = new LinkedList<>(ordered);
     }
 
     /**
@@ -453,29 +759,80 @@ public class NodeGraph {
      * @param newDummyNodes new leaf and root dummy nodes.
      */
     private void verticalSpacingNew(LinkedList<DrawNode> newNodes, LinkedList<DummyNode> newDummyNodes) {
-        int maxY;
-        for (int i = 0; i < newDummyNodes.size(); i++) {
-            maxY = 0;
-            for (int j = i - 1; j >= 0; j--) {
-                if (newDummyNodes.get(i).getX() == newDummyNodes.get(j).getX() && maxY < newDummyNodes.get(j).getY()) {
-                    maxY = newDummyNodes.get(j).getY();
-                }
-            }
-            newDummyNodes.get(i).setY(maxY + 50);
+        HashMap<Integer, Integer> columns = new HashMap<>();
+        stackDummyNodes(newDummyNodes, columns);
+        stackDrawNodes(newNodes, columns);
+    }
+
+    /**
+     * Places every dummy node 50 below the previous dummy node in its layer.
+     * @param dummies the dummy nodes in the order they are stacked.
+     * @param columns the Y coordinate of the lowest dummy node of every layer, which is filled in.
+     */
+    private void stackDummyNodes(List<DummyNode> dummies, HashMap<Integer, Integer> columns) {
+        for (DummyNode dummy : dummies) {
+            int y = columns.getOrDefault(dummy.getX(), 0) + 50;
+            dummy.setY(y);
+            columns.put(dummy.getX(), y);
         }
+    }
 
-        for (int i = 0; i < newNodes.size(); i++) {
-            if (i > 0 && newNodes.get(i - 1).getX() == newNodes.get(i).getX()) {
-                newNodes.get(i).setY(newNodes.get(i - 1).getY() + 50);
+    /**
+     * Places every node 50 below the previous node of its layer, or below the dummy nodes of its layer
+     * if it is the first of a run of nodes in the same layer.
+     * @param dNodes the nodes in the order they are stacked.
+     * @param columns the Y coordinate of the lowest dummy node of every layer.
+     */
+    private void stackDrawNodes(List<DrawNode> dNodes, HashMap<Integer, Integer> columns) {
+        DrawNode previous = null;
+        for (DrawNode dNode : dNodes) {
+            if (previous != null && previous.getX() == dNode.getX()) {
+                dNode.setY(previous.getY() + 50);
             } else {
-                maxY = 0;
-                for (DummyNode dN : newDummyNodes) {
-                    if (dN.getX() == (int) newNodes.get(i).getX() && dN.getY() > maxY) {
-                        maxY = dN.getY();
-                    }
+                dNode.setY(columns.getOrDefault((int) dNode.getX(), 0) + 50);
+            }
+            previous = dNode;
+        }
+    }
+
+    /**
+     * Orders the nodes of a layer by the mean Y coordinate of their children to reduce edge crossings.
+     * A node without placed children keeps the position it would get without ordering.
+     * @param layer the nodes of one layer, the layers to the right have been placed.
+     * @param top the Y coordinate of the lowest dummy node in the layer.
+     */
+    private void orderByBarycenter(List<DrawNode> layer, int top) {
+        int size = layer.size();
+        if (size < 2) {
+            return;
+        }
+        double[] keys = new double[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            DrawNode dNode = layer.get(i);
+            double sum = 0;
+            int count = 0;
+            int degree = getOutDegree(dNode.getIndex());
+            for (int k = 0; k < degree; k++) {
+                DrawNode child = getDrawNode(getOutTarget(dNode.getIndex(), k));
+                if (child != null && child.getX() > dNode.getX()) {
+                    sum += child.getY();
+                    count++;
                 }
-                newNodes.get(i).setY(maxY + 50);
             }
+            keys[i] = top + 50 * (i + 1);
+            if (count > 0) {
+                keys[i] = sum / count;
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+        DrawNode[] sorted = new DrawNode[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = layer.get(order[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            layer.set(i, sorted[i]);
         }
     }
 
@@ -483,8 +840,8 @@ public class NodeGraph {
      * Saves the root and leave nodes to specific lists.
      */
     private void retrieveEdgeNodes() {
-        rootNodes = new LinkedList<>();
-        leafNodes = new LinkedList<>();
+        rootNodes = new KeyList();
+        leafNodes = new KeyList();
         double startX = drawNodes.getLast().getX();
         double endX = drawNodes.getFirst().getX();
 
@@ -504,7 +861,7 @@ public class NodeGraph {
         while (it.hasNext()) {
             temp = it.next();
             if (temp.getX() == endX) {
-                leafNodes.add((double) temp.getIndex());
+                leafNodes.add(temp.getIndex());
             } else {
                 break;
             }
@@ -515,7 +872,7 @@ public class NodeGraph {
         while (rit.hasNext()) {
             temp = rit.next();
             if (temp.getX() == startX) {
-                rootNodes.add((double) temp.getIndex());
+                rootNodes.add(temp.getIndex());
             } else {
                 break;
             }
@@ -534,7 +891,7 @@ public class NodeGraph {
         while (it.hasNext()) {
             temp = it.next();
             if (temp.getX() == endX) {
-                leafNodes.add(temp.getAbsId());
+                leafNodes.add(temp.getKey());
             } else {
                 break;
             }
@@ -545,7 +902,7 @@ public class NodeGraph {
         while (rit.hasNext()) {
             temp = rit.next();
             if (temp.getX() == startX) {
-                rootNodes.add(temp.getAbsId());
+                rootNodes.add(temp.getKey());
             } else {
                 break;
             }
@@ -562,16 +919,47 @@ public class NodeGraph {
 
     /**
      * Returns the DrawNode that represents the given node.
+     * The DrawNodes are looked up in an index that is kept up to date with the list of DrawNodes.
      * @param index the index of the node we want the representing DrawNode for.
      * @return a DrawNode.
      */
     public DrawNode getDrawNode(int index) {
-        for (DrawNode dNode : drawNodes) {
-            if (dNode.getIndex() == index) {
-                return dNode;
+        return getDrawIndex().first(index);
+    }
+
+    /**
+     * Gets the index of the DrawNodes, it is built from the list of DrawNodes the first time.
+     * @return the DrawNodes by the id of the node they represent, in the order of the list of DrawNodes.
+     */
+    private DrawIndex getDrawIndex() {
+        if (drawIndex == null) {
+            drawIndex = new DrawIndex(drawNodes.size());
+            for (DrawNode dNode : drawNodes) {
+                drawIndex.add(dNode, false);
             }
         }
-        return null;
+        return drawIndex;
+    }
+
+    /**
+     * Adds a DrawNode that is added to the list of DrawNodes to the index.
+     * @param dNode the added DrawNode.
+     * @param first true iff the DrawNode is added at the start of the list.
+     */
+    private void indexDrawNode(DrawNode dNode, boolean first) {
+        if (drawIndex != null) {
+            drawIndex.add(dNode, first);
+        }
+    }
+
+    /**
+     * Removes a DrawNode that is no longer drawn from the index.
+     * @param dNode the removed DrawNode.
+     */
+    private void unindexDrawNode(DrawNode dNode) {
+        if (drawIndex != null) {
+            drawIndex.remove(dNode);
+        }
     }
 
     /**
@@ -589,24 +977,28 @@ public class NodeGraph {
     public Pair<LinkedList<DrawNode>, LinkedList<DummyNode>> addAtRoot() {
         ArrayList<Integer> visited = new ArrayList<>();
         LinkedList<DrawNode> newNodes = new LinkedList<DrawNode>();
-        for (Double id : rootNodes) {
+        for (int k = 0; k < rootNodes.size(); k++) {
+            long id = rootNodes.get(k);
             if (id >= 0) {
-                for (int m : NodeGraph.getCurrentInstance().getNodes().get(id.intValue()).getIncomingEdges()) {
+                NodeGraph graph = NodeGraph.getCurrentInstance();
+                int degree = graph.getInDegree((int) id);
+                for (int j = 0; j < degree; j++) {
+                    int m = graph.getInTarget((int) id, j);
                     if (!visited.contains(m)) {
                         visited.add(m);
                     }
                 }
             } else {
-                DummyNode dummy = NodeGraph.getCurrentInstance().getDummyNode(id);
-                if (!visited.contains(dummy.getFrom())) {
-                    visited.add(dummy.getFrom());
+                int from = DummyNode.keyFrom(id);
+                if (!visited.contains(from)) {
+                    visited.add(from);
                 }
             }
         }
         for (int i = 0; i < visited.size(); i++) {
             newNodes.addLast(new DrawNode(visited.get(i)));
         }
-        newNodes = newTopoSort(newNodes);
+        newNodes = topoSort(newNodes);
         assignLayersRoot(newNodes);
         LinkedList<DrawNode> newDrawNodes = new LinkedList<>();
         LinkedList<DummyNode> newDummyNodes = new LinkedList<>();
@@ -619,20 +1011,16 @@ public class NodeGraph {
         }
         for (int i = 0; i < newNodes.size(); i++) {
             if (Math.abs(newNodes.get(i).getX() - maxX) < 0.1) {
-                nodes.get(newNodes.get(i).getIndex()).computeLength();
-                newNodes.get(i).setWidth(nodes.get(newNodes.get(i).getIndex()).getLength());
+                newNodes.get(i).setWidth(getLength(newNodes.get(i).getIndex()));
                 newNodes.get(i).setHeight(10);
                 newNodes.get(i).setFill(Color.CRIMSON);
                 newDrawNodes.add(newNodes.get(i));
             } else {
-                Node dummyIn = nodes.get(newNodes.get(i).getIndex());
+                int degree = getOutDegree(newNodes.get(i).getIndex());
                 int dummyOut = -1;
-                for (int j = 0; j < dummyIn.getOutgoingEdges().length; j++) {
-                    for (Double id : rootNodes) {
-                        if (id.intValue() == dummyIn.getOutgoingEdges()[j]) {
-                            dummyOut = j;
-                            break;
-                        }
+                for (int j = 0; j < degree; j++) {
+                    if (rootNodes.contains(getOutTarget(newNodes.get(i).getIndex(), j))) {
+                        dummyOut = j;
                     }
                 }
                 newDummyNodes.add(new DummyNode(-1, newNodes.get(i).getIndex(), dummyOut, (int) maxX, 0));
@@ -641,6 +1029,7 @@ public class NodeGraph {
         verticalSpacingNew(newDrawNodes, newDummyNodes);
         for (int i = 0; i < newDrawNodes.size(); i++) {
             drawNodes.addLast(newDrawNodes.get(i));
+            indexDrawNode(newDrawNodes.get(i), false);
         }
         dummyNodes.addAll(newDummyNodes);
         rootNodes.clear();
@@ -656,24 +1045,28 @@ public class NodeGraph {
     public Pair<LinkedList<DrawNode>, LinkedList<DummyNode>> addAtLeaf() {
         ArrayList<Integer> visited = new ArrayList<>();
         LinkedList<DrawNode> newNodes = new LinkedList<DrawNode>();
-        for (Double id : leafNodes) {
+        for (int k = 0; k < leafNodes.size(); k++) {
+            long id = leafNodes.get(k);
             if (id >= 0) {
-                for (int m : NodeGraph.getCurrentInstance().getNodes().get(id.intValue()).getOutgoingEdges()) {
+                NodeGraph graph = NodeGraph.getCurrentInstance();
+                int degree = graph.getOutDegree((int) id);
+                for (int j = 0; j < degree; j++) {
+                    int m = graph.getOutTarget((int) id, j);
                     if (!visited.contains(m)) {
                         visited.add(m);
                     }
                 }
             } else {
-                DummyNode dummy = NodeGraph.getCurrentInstance().getDummyNode(id);
-                if (!visited.contains(dummy.getTo())) {
-                    visited.add(dummy.getTo());
+                int to = DummyNode.keyTo(id);
+                if (!visited.contains(to)) {
+                    visited.add(to);
                 }
             }
         }
         for (int i = 0; i < visited.size(); i++) {
             newNodes.addLast(new DrawNode(visited.get(i)));
         }
-        newNodes = newTopoSort(newNodes);
+        newNodes = topoSort(newNodes);
         assignLayersLeaf(newNodes);
         LinkedList<DrawNode> newDrawNodes = new LinkedList<>();
         LinkedList<DummyNode> newDummyNodes = new LinkedList<>();
@@ -685,20 +1078,16 @@ public class NodeGraph {
         }
         for (int i = 0; i < newNodes.size(); i++) {
             if (newNodes.get(i).getX() == minX) {
-                nodes.get(newNodes.get(i).getIndex()).computeLength();
-                newNodes.get(i).setWidth(nodes.get(newNodes.get(i).getIndex()).getLength());
+                newNodes.get(i).setWidth(getLength(newNodes.get(i).getIndex()));
                 newNodes.get(i).setHeight(10);
                 newNodes.get(i).setFill(Color.CRIMSON);
                 newDrawNodes.add(newNodes.get(i));
             } else {
-                Node dummyOut = nodes.get(newNodes.get(i).getIndex());
+                int degree = getInDegree(newNodes.get(i).getIndex());
                 int dummyIn = -1;
-                for (int j = 0; j < dummyOut.getIncomingEdges().length; j++) {
-                    for (Double id : leafNodes) {
-                        if (id.intValue() == dummyOut.getIncomingEdges()[j]) {
-                            dummyIn = j;
-                            break;
-                        }
+                for (int j = 0; j < degree; j++) {
+                    if (leafNodes.contains(getInTarget(newNodes.get(i).getIndex(), j))) {
+                        dummyIn = j;
                     }
                 }
                 newDummyNodes.add(new DummyNode(-1, dummyIn, newNodes.get(i).getIndex(), (int) minX, 0));
@@ -707,6 +1096,7 @@ public class NodeGraph {
         verticalSpacingNew(newDrawNodes, newDummyNodes);
         for (int i = 0; i < newDrawNodes.size(); i++) {
             drawNodes.addFirst(newDrawNodes.get(i));
+            indexDrawNode(newDrawNodes.get(i), true);
         }
         dummyNodes.addAll(newDummyNodes);
         return new Pair(newDrawNodes, newDummyNodes);
@@ -718,32 +1108,36 @@ public class NodeGraph {
      */
     public double removeAtRoot() {
         ArrayList<Integer> visited = new ArrayList<Integer>();
-        for (Double id : rootNodes) {
+        for (int k = 0; k < rootNodes.size(); k++) {
+            long id = rootNodes.get(k);
             if (id >= 0) {
-                for (int m : NodeGraph.getCurrentInstance().getNodes().get(id.intValue()).getOutgoingEdges()) {
+                NodeGraph graph = NodeGraph.getCurrentInstance();
+                int degree = graph.getOutDegree((int) id);
+                for (int j = 0; j < degree; j++) {
+                    int m = graph.getOutTarget((int) id, j);
                     if (!visited.contains(m)) {
                         visited.add(m);
                     }
                 }
             } else {
-                DummyNode dummy = NodeGraph.getCurrentInstance().getDummyNode(id);
-                if (!visited.contains(dummy.getTo())) {
-                    visited.add(dummy.getTo());
+                int to = DummyNode.keyTo(id);
+                if (!visited.contains(to)) {
+                    visited.add(to);
                 }
             }
         }
         double minX = Double.MAX_VALUE;
-        for (Integer i : visited) {
-            for (int j = 0; j < drawNodes.size(); j++) {
-                if (drawNodes.get(j).getIndex() == i && drawNodes.get(j).getX() < minX) {
-                    minX = drawNodes.get(j).getX();
+        DrawIndex index = getDrawIndex();
+        for (int i : visited) {
+            for (int entry = index.head(i); entry >= 0; entry = index.next(entry)) {
+                if (index.get(entry).getX() < minX) {
+                    minX = index.get(entry).getX();
                     break;
                 }
             }
         }
-        ArrayList<DrawNode> removeNodes = new ArrayList<DrawNode>();
         while (drawNodes.getLast().getX() < minX) {
-            removeNodes.add(drawNodes.removeLast());
+            unindexDrawNode(drawNodes.removeLast());
         }
         leafNodes.clear();
         rootNodes.clear();
@@ -757,61 +1151,53 @@ public class NodeGraph {
      */
     public double removeAtLeaf() {
         ArrayList<Integer> visited = new ArrayList<Integer>();
-        for (Double id : leafNodes) {
+        for (int k = 0; k < leafNodes.size(); k++) {
+            long id = leafNodes.get(k);
             if (id >= 0) {
-                for (int m : NodeGraph.getCurrentInstance().getNodes().get(id.intValue()).getIncomingEdges()) {
+                NodeGraph graph = NodeGraph.getCurrentInstance();
+                int degree = graph.getInDegree((int) id);
+                for (int j = 0; j < degree; j++) {
+                    int m = graph.getInTarget((int) id, j);
                     if (!visited.contains(m)) {
                         visited.add(m);
                     }
                 }
             } else {
-                DummyNode dummy = NodeGraph.getCurrentInstance().getDummyNode(id);
-                if (!visited.contains(dummy.getFrom())) {
-                    visited.add(dummy.getFrom());
+                int from = DummyNode.keyFrom(id);
+                if (!visited.contains(from)) {
+                    visited.add(from);
                     break;
                 }
             }
         }
         double maxX = -Double.MAX_VALUE;
-        for (Integer i : visited) {
-            for (int j = 0; j < drawNodes.size(); j++) {
-                if (drawNodes.get(j).getIndex() == i && drawNodes.get(j).getX() > maxX) {
-                    maxX = drawNodes.get(j).getX();
+        DrawIndex index = getDrawIndex();
+        for (int i : visited) {
+            for (int entry = index.head(i); entry >= 0; entry = index.next(entry)) {
+                if (index.get(entry).getX() > maxX) {
+                    maxX = index.get(entry).getX();
                 }
             }
         }
-        ArrayList<DrawNode> removeNodes = new ArrayList<DrawNode>();
         while (drawNodes.getFirst().getX() > maxX) {
-            removeNodes.add(drawNodes.remove());
+            unindexDrawNode(drawNodes.remove());
         }
         return drawNodes.getFirst().getX();
     }
-    /**
-     * Getter for a Dummy Node.
-     * @param id id of the Dummy Node.
-     * @return the Dummy Node.
-     */
-    private DummyNode getDummyNode(double id) {
-        for (int i = 0; i < dummyNodes.size(); i++) {
-            if (dummyNodes.get(i).getAbsId() == id) {
-                return dummyNodes.get(i);
-            }
-        }
-        return null;
-    }
 
-     /** Get the root nodes of the current SubGraph.
-     * @return LinkedList containing the AbsIds of the Root Nodes of the current SubGraph.
+    /**
+     * Get the root nodes of the current SubGraph.
+     * @return KeyList containing the ids of the root nodes and the keys of the root dummy edges of the current SubGraph.
      */
-    protected LinkedList<Double> getRootNodes() {
+    KeyList getRootNodes() {
         return rootNodes;
     }
 
     /**
      * Get the leaf nodes of the current SubGraph.
-     * @return LinkedList containing the AbsIds of the Lead Nodes of the current SubGraph.
+     * @return KeyList containing the ids of the leaf nodes and the keys of the leaf dummy edges of the current SubGraph.
      */
-    protected LinkedList<Double> getLeafNodes() {
+    KeyList getLeafNodes() {
         return leafNodes;
     }
 }
@@ -1,18 +1,83 @@
 package datastructure;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Created by 101010.
  */
 public class SegmentDB {
+    /**
+     * Magic number at the start of a binary segment store.
+     */
+    static final int MAGIC = 0x43505347;
+
+    /**
+     * Version of the binary segment store format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header of a binary segment store in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Size of an entry in the offset table in bytes.
+     */
+    static final int ENTRY_SIZE = 16;
+
+    /**
+     * Encoding of a segment packed with 2 bits per nucleotide.
+     */
+    static final byte PACKED = 0;
+
+    /**
+     * Encoding of a segment stored as raw bytes, used for IUPAC codes and N.
+     */
+    static final byte RAW = 1;
+
+    /**
+     * The nucleotides in order of their 2 bit code.
+     */
+    static final String ALPHABET = "ACGT";
+
     /**
      * The location of the database.
      */
     private String dbLoc;
 
+    /**
+     * Channel of the binary segment store, only kept open when the store is too large to map at once.
+     */
+    private FileChannel channel;
+
+    /**
+     * The binary segment store mapped in memory, null if it is too large to map at once.
+     */
+    private ByteBuffer mapped;
+
+    /**
+     * Number of segments in the binary segment store.
+     */
+    private int count;
+
+    /**
+     * The offset table of the binary segment store.
+     */
+    private ByteBuffer table;
+
+    /**
+     * Byte offsets of the start of every segment in a text database,
+     * followed by the offset of the end of the last segment.
+     */
+    private long[] offsets;
+
     /**
      * Empty constructor for SegmentDB.
      */
@@ -22,6 +87,8 @@ public class SegmentDB {
 
     /**
      * Constructor for SegmentDB.
+     * The database is either a binary segment store written by {@link SegmentDBWriter}
+     * or a text file with one segment per line.
      *
      * @param dbLocation the location of the database.
      */
@@ -37,21 +104,162 @@ public class SegmentDB {
      * @return The segment corresponding to the id.
      */
     public String getSegment(int id) {
-        String res = "";
+        String res = null;
         try {
-            BufferedReader br = new BufferedReader(new FileReader(dbLoc));
-
-            res = br.readLine();
-
-            while (id > 0 && res != null) {
-                res = br.readLine();
-                id--;
+            open();
+            if (table != null) {
+                res = getStoredSegment(id);
+            } else {
+                res = getTextSegment(id);
             }
-            br.close();
         } catch (IOException e) {
             System.out.println(e.getMessage());
             e.printStackTrace();
         }
         return res;
     }
+
+    /**
+     * Gets a segment from the binary segment store.
+     *
+     * @param id The id of the node.
+     * @return The segment corresponding to the id.
+     * @throws IOException when the store can't be read.
+     */
+    private String getStoredSegment(int id) throws IOException {
+        if (id < 0 || id >= count) {
+            return null;
+        }
+        int entry = id * ENTRY_SIZE;
+        long offset = table.getLong(entry);
+        int length = table.getInt(entry + 8);
+        int encoding = table.getInt(entry + 12);
+        int size = length;
+        if (encoding == PACKED) {
+            size = (length + 3) / 4;
+        }
+
+        ByteBuffer payload;
+        int start;
+        if (mapped != null) {
+            payload = mapped;
+            start = (int) offset;
+        } else {
+            payload = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            start = 0;
+        }
+
+        if (encoding == PACKED) {
+            char[] segment = new char[length];
+            for (int i = 0; i < length; i++) {
+                int code = (payload.get(start + (i >> 2)) >> (2 * (3 - (i & 3)))) & 3;
+                segment[i] = ALPHABET.charAt(code);
+            }
+            return new String(segment);
+        }
+        byte[] segment = new byte[length];
+        for (int i = 0; i < length; i++) {
+            segment[i] = payload.get(start + i);
+        }
+        return new String(segment, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets a segment from a text database.
+     *
+     * @param id The id of the node.
+     * @return The segment corresponding to the id.
+     * @throws IOException when the database can't be read.
+     */
+    private String getTextSegment(int id) throws IOException {
+        if (id < 0 || id >= offsets.length - 1) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(dbLoc, "r");
+        byte[] segment = new byte[(int) (offsets[id + 1] - offsets[id] - 1)];
+        raf.seek(offsets[id]);
+        raf.readFully(segment);
+        raf.close();
+        return new String(segment, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens the database the first time a segment is requested.
+     * A binary segment store gets mapped in memory once it is complete,
+     * for a text database the offsets of the segments are computed.
+     * A .bin file is never read as a text database.
+     *
+     * @throws IOException when the database can't be read.
+     */
+    private synchronized void open() throws IOException {
+        if (table != null || offsets != null) {
+            return;
+        }
+        FileChannel fc = new RandomAccessFile(dbLoc, "r").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && fc.read(header) >= 0) {
+            continue;
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            fc.close();
+            if (dbLoc.endsWith(".bin")) {
+                throw new IOException("Segment store " + dbLoc + " has no valid header");
+            }
+            offsets = scanOffsets();
+            return;
+        }
+        if (header.getInt(4) != VERSION) {
+            fc.close();
+            throw new IOException("Unsupported segment store version " + header.getInt(4));
+        }
+        count = header.getInt(8);
+        long tableOffset = header.getLong(16);
+        if (tableOffset == 0) {
+            fc.close();
+            throw new IOException("Segment store " + dbLoc + " is incomplete");
+        }
+        table = fc.map(FileChannel.MapMode.READ_ONLY, tableOffset, (long) count * ENTRY_SIZE);
+        if (fc.size() <= Integer.MAX_VALUE) {
+            mapped = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            fc.close();
+        } else {
+            channel = fc;
+        }
+    }
+
+    /**
+     * Computes the offsets of all segments by scanning the text database once.
+     *
+     * @return the offsets of all segments.
+     * @throws IOException when the database can't be read.
+     */
+    private long[] scanOffsets() throws IOException {
+        long[] result = new long[16];
+        int lines = 1;
+        long position = 0;
+        byte[] buffer = new byte[1 << 16];
+        FileInputStream in = new FileInputStream(dbLoc);
+        int read = in.read(buffer);
+        while (read > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    if (lines == result.length) {
+                        result = Arrays.copyOf(result, lines * 2);
+                    }
+                    result[lines++] = position + i + 1;
+                }
+            }
+            position += read;
+            read = in.read(buffer);
+        }
+        in.close();
+        if (result[lines - 1] != position) {
+            if (lines == result.length) {
+                result = Arrays.copyOf(result, lines + 1);
+            }
+            result[lines++] = position + 1;
+        }
+        return Arrays.copyOf(result, lines);
+    }
 }
@@ -0,0 +1,213 @@
+package datastructure;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes segments to the binary segment store read by {@link SegmentDB}.
+ * The header is written first without an offset table, so a store that is still being written
+ * is recognised as incomplete. Segments are appended in the order of their node ids,
+ * the offset table and its position in the header are written when the writer is closed.
+ */
+public class SegmentDBWriter {
+    /**
+     * The 2 bit code of every byte, -1 for bytes that are not A, C, G or T.
+     */
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < SegmentDB.ALPHABET.length(); i++) {
+            CODES[SegmentDB.ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * The location of the segment store.
+     */
+    private String dbLoc;
+
+    /**
+     * Stream the header and the payloads are written to.
+     */
+    private DataOutputStream out;
+
+    /**
+     * Number of bytes written to the store so far.
+     */
+    private long position;
+
+    /**
+     * Number of segments written so far.
+     */
+    private int count;
+
+    /**
+     * Payload offset of every segment written so far.
+     */
+    private long[] offsets;
+
+    /**
+     * Number of nucleotides of every segment written so far.
+     */
+    private int[] lengths;
+
+    /**
+     * Encoding of every segment written so far.
+     */
+    private byte[] encodings;
+
+    /**
+     * Reusable buffer for packing a segment.
+     */
+    private byte[] packed;
+
+    /**
+     * Constructor for SegmentDBWriter.
+     * @param dbLocation the location of the segment store.
+     * @throws IOException when the store can't be created.
+     */
+    public SegmentDBWriter(String dbLocation) throws IOException {
+        this(dbLocation, 1024);
+    }
+
+    /**
+     * Constructor for SegmentDBWriter presized for the expected number of segments.
+     * @param dbLocation the location of the segment store.
+     * @param expectedSegments the number of segments the store is expected to contain.
+     * @throws IOException when the store can't be created.
+     */
+    public SegmentDBWriter(String dbLocation, int expectedSegments) throws IOException {
+        int capacity = Math.max(16, expectedSegments);
+        this.dbLoc = dbLocation;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dbLocation), 1 << 20));
+        this.offsets = new long[capacity];
+        this.lengths = new int[capacity];
+        this.encodings = new byte[capacity];
+        this.packed = new byte[1024];
+        out.writeInt(SegmentDB.MAGIC);
+        out.writeInt(SegmentDB.VERSION);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(0L);
+        out.write(new byte[SegmentDB.HEADER_SIZE - 24]);
+        out.flush();
+        position = SegmentDB.HEADER_SIZE;
+    }
+
+    /**
+     * Appends a segment to the store.
+     * Segments consisting of only A, C, G and T are packed with 2 bits per nucleotide,
+     * all other segments are stored as raw bytes.
+     * @param segment the segment of the next node.
+     * @throws IOException when the segment can't be written.
+     */
+    public void addSegment(String segment) throws IOException {
+        byte[] bytes = segment.getBytes(StandardCharsets.US_ASCII);
+        addSegment(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Appends a segment to the store.
+     * @param data the bytes containing the segment of the next node.
+     * @param offset the offset of the segment in data.
+     * @param length the number of nucleotides in the segment.
+     * @throws IOException when the segment can't be written.
+     */
+    public void addSegment(byte[] data, int offset, int length) throws IOException {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+            encodings = Arrays.copyOf(encodings, count * 2);
+        }
+        int size = pack(data, offset, length);
+        if (size >= 0) {
+            encodings[count] = SegmentDB.PACKED;
+            out.write(packed, 0, size);
+        } else {
+            size = length;
+            encodings[count] = SegmentDB.RAW;
+            out.write(data, offset, length);
+        }
+        offsets[count] = position;
+        lengths[count] = length;
+        position += size;
+        count++;
+    }
+
+    /**
+     * Packs a segment into the packing buffer with 2 bits per nucleotide.
+     * @param data the bytes containing the segment.
+     * @param offset the offset of the segment in data.
+     * @param length the number of nucleotides in the segment.
+     * @return the number of bytes used, or -1 when the segment contains other characters than A, C, G and T.
+     */
+    private int pack(byte[] data, int offset, int length) {
+        int size = (length + 3) / 4;
+        ensurePacked(size);
+        int current = 0;
+        for (int i = 0; i < length; i++) {
+            int code = CODES[data[offset + i] & 0xFF];
+            if (code < 0) {
+                return -1;
+            }
+            current = (current << 2) | code;
+            if ((i & 3) == 3) {
+                packed[i >> 2] = (byte) current;
+                current = 0;
+            }
+        }
+        if ((length & 3) != 0) {
+            packed[length >> 2] = (byte) (current << (2 * (4 - (length & 3))));
+        }
+        return size;
+    }
+
+    /**
+     * Makes sure the packing buffer can hold the given number of bytes.
+     * @param size the number of bytes needed.
+     */
+    private void ensurePacked(int size) {
+        if (packed.length < size) {
+            packed = new byte[Math.max(size, packed.length * 2)];
+        }
+    }
+
+    /**
+     * Writes the offset table, completes the header and closes the store.
+     * @throws IOException when the store can't be written.
+     */
+    public void close() throws IOException {
+        long tableOffset = position;
+        for (int i = 0; i < count; i++) {
+            out.writeLong(offsets[i]);
+            out.writeInt(lengths[i]);
+            out.writeInt(encodings[i]);
+        }
+        out.close();
+
+        RandomAccessFile header = new RandomAccessFile(dbLoc, "rw");
+        header.writeInt(SegmentDB.MAGIC);
+        header.writeInt(SegmentDB.VERSION);
+        header.writeInt(count);
+        header.writeInt(0);
+        header.writeLong(tableOffset);
+        header.close();
+    }
+
+    /**
+     * Closes the store without finishing it and deletes it, so no partial file is left behind.
+     * @throws IOException when the store can't be deleted.
+     */
+    public void abort() throws IOException {
+        out.close();
+        Files.deleteIfExists(Paths.get(dbLoc));
+    }
+}
@@ -0,0 +1,270 @@
+package datastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Uniform grid over the bounding boxes of laid out items.
+ * Every item is stored in the cells its bounding box overlaps, so a query only visits
+ * the cells of the queried region instead of all items.
+ * Cells are grouped by column, so a strip that is unbounded vertically only visits the occupied cells of its columns.
+ * @param <T> the type of the items.
+ */
+public class SpatialIndex<T> {
+    /**
+     * Maximal number of cells an item is stored in, larger items are checked by every query.
+     */
+    private static final int MAX_CELLS = 1024;
+
+    /**
+     * Width and height of a cell.
+     */
+    private final double cellSize;
+
+    /**
+     * The non empty cells of every column that has items, by row.
+     */
+    private final TreeMap<Integer, HashMap<Integer, ArrayList<T>>> columns;
+
+    /**
+     * Items that overlap too many cells to be stored in them.
+     */
+    private final ArrayList<T> oversized;
+
+    /**
+     * Bounding box of every item as minX, minY, maxX, maxY.
+     */
+    private final Map<T, double[]> bounds;
+
+    /**
+     * Number of items checked by the last query.
+     */
+    private int checked;
+
+    /**
+     * Constructor for SpatialIndex.
+     * @param cellSize the width and height of a cell, about the size of an item.
+     */
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.columns = new TreeMap<>();
+        this.oversized = new ArrayList<>();
+        this.bounds = new IdentityHashMap<>();
+        clear();
+    }
+
+    /**
+     * Adds an item to the index, an item that is already present is moved.
+     * @param item the item.
+     * @param minX left side of the bounding box.
+     * @param minY top side of the bounding box.
+     * @param maxX right side of the bounding box.
+     * @param maxY bottom side of the bounding box.
+     */
+    public void insert(T item, double minX, double minY, double maxX, double maxY) {
+        remove(item);
+        double[] box = new double[]{Math.min(minX, maxX), Math.min(minY, maxY), Math.max(minX, maxX), Math.max(minY, maxY)};
+        bounds.put(item, box);
+        if (cellCount(box) > MAX_CELLS) {
+            oversized.add(item);
+            return;
+        }
+        for (int x = cell(box[0]); x <= cell(box[2]); x++) {
+            HashMap<Integer, ArrayList<T>> rows = columns.computeIfAbsent(x, k -> new HashMap<>());
+            for (int y = cell(box[1]); y <= cell(box[3]); y++) {
+                rows.computeIfAbsent(y, k -> new ArrayList<>(4)).add(item);
+            }
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     * @param item the item.
+     * @return true iff the item was in the index.
+     */
+    public boolean remove(T item) {
+        double[] box = bounds.remove(item);
+        if (box == null) {
+            return false;
+        }
+        if (cellCount(box) > MAX_CELLS) {
+            removeIdentity(oversized, item);
+            return true;
+        }
+        for (int x = cell(box[0]); x <= cell(box[2]); x++) {
+            HashMap<Integer, ArrayList<T>> rows = columns.get(x);
+            if (rows == null) {
+                continue;
+            }
+            for (int y = cell(box[1]); y <= cell(box[3]); y++) {
+                ArrayList<T> items = rows.get(y);
+                if (items != null) {
+                    removeIdentity(items, item);
+                    if (items.isEmpty()) {
+                        rows.remove(y);
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                columns.remove(x);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the items whose bounding box intersects a region.
+     * The region may be unbounded, only the occupied cells of the columns of the region are visited.
+     * @param minX left side of the region.
+     * @param minY top side of the region.
+     * @param maxX right side of the region.
+     * @param maxY bottom side of the region.
+     * @return the items in the region, every item once.
+     */
+    public List<T> query(double minX, double minY, double maxX, double maxY) {
+        Map<T, Boolean> found = new IdentityHashMap<>();
+        ArrayList<T> result = new ArrayList<>();
+        double[] region = new double[]{minX, minY, maxX, maxY};
+        checked = 0;
+        int fromX = cell(minX);
+        int toX = cell(maxX);
+        int fromY = cell(minY);
+        int toY = cell(maxY);
+        if (fromX <= toX && fromY <= toY) {
+            for (HashMap<Integer, ArrayList<T>> rows : columns.subMap(fromX, true, toX, true).values()) {
+                collectColumn(rows, fromY, toY, region, found, result);
+            }
+        }
+        for (T item : oversized) {
+            collect(item, region, found, result);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the items whose bounding box contains a point.
+     * @param x x-coordinate of the point.
+     * @param y y-coordinate of the point.
+     * @return the items at the point.
+     */
+    public List<T> query(double x, double y) {
+        return query(x, y, x, y);
+    }
+
+    /**
+     * Getter for the bounding box of an item.
+     * @param item the item.
+     * @return minX, minY, maxX and maxY of the item, null if it is not in the index.
+     */
+    public double[] getBounds(T item) {
+        return bounds.get(item);
+    }
+
+    /**
+     * Returns the amount of items.
+     * @return the number of items in the index.
+     */
+    public int size() {
+        return bounds.size();
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    public void clear() {
+        columns.clear();
+        oversized.clear();
+        bounds.clear();
+    }
+
+    /**
+     * Getter for the number of items checked by the last query.
+     * @return the number of times an item was compared to the region of the last query.
+     */
+    int getChecked() {
+        return checked;
+    }
+
+    /**
+     * Adds the items of the cells of a column in a range of rows to the result.
+     * When the range is larger than the column, the occupied cells are visited instead of the rows.
+     * @param rows the non empty cells of the column by row.
+     * @param fromY the first row of the range.
+     * @param toY the last row of the range.
+     * @param region minX, minY, maxX and maxY of the region.
+     * @param found the items found so far.
+     * @param result the result of the query.
+     */
+    private void collectColumn(Map<Integer, ArrayList<T>> rows, int fromY, int toY, double[] region, Map<T, Boolean> found, List<T> result) {
+        if ((long) toY - fromY + 1 > rows.size()) {
+            for (Map.Entry<Integer, ArrayList<T>> entry : rows.entrySet()) {
+                if (entry.getKey() >= fromY && entry.getKey() <= toY) {
+                    for (T item : entry.getValue()) {
+                        collect(item, region, found, result);
+                    }
+                }
+            }
+            return;
+        }
+        for (int y = fromY; y <= toY; y++) {
+            ArrayList<T> items = rows.get(y);
+            if (items != null) {
+                for (T item : items) {
+                    collect(item, region, found, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an item to the result if its bounding box intersects the region and it has not been found before.
+     * @param item the item.
+     * @param region minX, minY, maxX and maxY of the region.
+     * @param found the items found so far.
+     * @param result the result of the query.
+     */
+    private void collect(T item, double[] region, Map<T, Boolean> found, List<T> result) {
+        checked++;
+        double[] box = bounds.get(item);
+        if (box[0] <= region[2] && box[2] >= region[0] && box[1] <= region[3] && box[3] >= region[1]
+                && found.put(item, Boolean.TRUE) == null) {
+            result.add(item);
+        }
+    }
+
+    /**
+     * Counts the cells overlapped by a bounding box.
+     * @param box minX, minY, maxX and maxY of the bounding box.
+     * @return the number of cells.
+     */
+    private long cellCount(double[] box) {
+        return ((long) cell(box[2]) - cell(box[0]) + 1) * ((long) cell(box[3]) - cell(box[1]) + 1);
+    }
+
+    /**
+     * Computes the cell of a coordinate.
+     * @param coordinate the x or y coordinate.
+     * @return the column or row of the cell.
+     */
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Removes an item from a list by identity.
+     * @param items the list.
+     * @param item the item.
+     */
+    private void removeIdentity(List<T> items, T item) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i) == item) {
+                items.remove(i);
+                return;
+            }
+        }
+    }
+}
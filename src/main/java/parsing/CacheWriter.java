@@ -0,0 +1,167 @@
+package parsing;
+
+import datastructure.GraphStore;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+
+/**
+ * Writes the cache of a parsed graph.
+ * The topology is stored in compressed sparse row layout:
+ * a header, the lengths of all nodes and an offset and target array for both edge directions.
+ * The cache is written to a temporary file which is renamed when it is complete,
+ * so an interrupted write never leaves a cache that looks valid.
+ */
+final class CacheWriter implements Callable<Path> {
+    /**
+     * The location of the cache.
+     */
+    private final Path target;
+
+    /**
+     * The temporary file the cache is written to.
+     */
+    private final Path temp;
+
+    /**
+     * The store that is cached.
+     */
+    private final GraphStore store;
+
+    /**
+     * The fingerprint of the gfa file taken before it was parsed.
+     */
+    private final long[] fingerprint;
+
+    /**
+     * Number of bytes of the cache.
+     */
+    private final long total;
+
+    /**
+     * Number of bytes of the cache written so far.
+     */
+    private volatile long written;
+
+    /**
+     * Constructor for CacheWriter.
+     * @param filename the name of the gfa file without its extension.
+     * @param store the store that is cached.
+     * @param fingerprint the fingerprint of the gfa file taken before it was parsed.
+     */
+    CacheWriter(String filename, GraphStore store, long[] fingerprint) {
+        this.target = Paths.get(filename + "Cache.bin");
+        this.temp = Paths.get(filename + "Cache.bin.tmp");
+        this.store = store;
+        this.fingerprint = fingerprint;
+        this.total = Parser.CACHE_HEADER_SIZE + 4L * (store.getLengths().length + store.getOutOffsets().length
+                + store.getOutTargets().length + store.getInOffsets().length + store.getInTargets().length);
+    }
+
+    /**
+     * Writes the cache and moves it to its location.
+     * @return the location of the cache.
+     * @throws IOException when the cache can't be written, the temporary file is removed.
+     */
+    @Override
+    public Path call() throws IOException {
+        try {
+            int[] lengths = store.getLengths();
+            int[] outTargets = store.getOutTargets();
+            int[] inTargets = store.getInTargets();
+
+            FileChannel out = new FileOutputStream(temp.toFile()).getChannel();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+                buffer.putInt(Parser.CACHE_MAGIC);
+                buffer.putInt(Parser.CACHE_VERSION);
+                buffer.putInt(lengths.length);
+                buffer.putInt(outTargets.length);
+                buffer.putInt(inTargets.length);
+                buffer.position(Parser.CACHE_FINGERPRINT_OFFSET);
+                for (long value : fingerprint) {
+                    buffer.putLong(value);
+                }
+                buffer.position(Parser.CACHE_HEADER_SIZE);
+                writeInts(out, buffer, lengths);
+                writeInts(out, buffer, store.getOutOffsets());
+                writeInts(out, buffer, outTargets);
+                writeInts(out, buffer, store.getInOffsets());
+                writeInts(out, buffer, inTargets);
+                flush(out, buffer);
+                out.force(true);
+            } finally {
+                out.close();
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } catch (IOException e) {
+            System.out.println("Error while writing cache " + target.getFileName());
+            e.printStackTrace();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes an array of ints to the cache through the given buffer.
+     * @param channel The channel of the cache file.
+     * @param buffer The buffer used for writing, it may contain data that is not yet written.
+     * @param values The ints to write.
+     * @throws IOException when the cache can't be written.
+     */
+    private void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int index = 0;
+        while (index < values.length) {
+            if (buffer.remaining() < 4) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(values.length - index, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, index, count);
+            buffer.position(buffer.position() + 4 * count);
+            index += count;
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the cache and clears it.
+     * @param channel The channel of the cache file.
+     * @param buffer The buffer containing data that is not yet written.
+     * @throws IOException when the cache can't be written.
+     */
+    private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Getter for the progress of the cache.
+     * @return the fraction of the cache that is written.
+     */
+    double getProgress() {
+        return (double) written / (double) total;
+    }
+
+    /**
+     * Getter for the location of the cache.
+     * @return the path the cache is moved to when it is complete.
+     */
+    Path getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,105 @@
+package parsing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Index of the genome names of a gfa file, looked up by a range of bytes so names are never copied into Strings.
+ * The index is only read after it is created, so it is shared by all workers.
+ */
+final class GenomeIndex {
+    /**
+     * Marks an empty slot in the table.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The bytes of every genome name, in the order of the genomes.
+     */
+    private final byte[][] names;
+
+    /**
+     * The genome in every slot of the table, NONE if the slot is empty.
+     */
+    private final int[] slots;
+
+    /**
+     * Constructor for a GenomeIndex, the first index is used for duplicate names.
+     * @param allGenomes all the genomes of the gfa file.
+     */
+    GenomeIndex(String[] allGenomes) {
+        names = new byte[allGenomes.length][];
+        slots = new int[Integer.highestOneBit(Math.max(4, 2 * allGenomes.length) - 1) << 1];
+        Arrays.fill(slots, NONE);
+        for (int i = 0; i < allGenomes.length; i++) {
+            names[i] = allGenomes[i].getBytes(StandardCharsets.UTF_8);
+            int slot = find(names[i], 0, names[i].length);
+            if (slots[slot] == NONE) {
+                slots[slot] = i;
+            }
+        }
+    }
+
+    /**
+     * Gets the index of a genome name.
+     * @param data the bytes containing the name.
+     * @param from the offset of the name in data.
+     * @param to the offset just after the name.
+     * @return the index of the genome, -1 if it is unknown.
+     */
+    int get(byte[] data, int from, int to) {
+        return slots[find(data, from, to)];
+    }
+
+    /**
+     * Finds the slot of a name with linear probing.
+     * @param data the bytes containing the name.
+     * @param from the offset of the name in data.
+     * @param to the offset just after the name.
+     * @return the slot containing the name, or the empty slot where it would be added.
+     */
+    private int find(byte[] data, int from, int to) {
+        int mask = slots.length - 1;
+        int slot = hash(data, from, to) & mask;
+        while (slots[slot] != NONE && !matches(names[slots[slot]], data, from, to)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Checks whether a name equals a range of bytes.
+     * @param name the bytes of the name.
+     * @param data the bytes containing the range.
+     * @param from the offset of the range in data.
+     * @param to the offset just after the range.
+     * @return true iff the range contains exactly the name.
+     */
+    private static boolean matches(byte[] name, byte[] data, int from, int to) {
+        if (name.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != data[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes a range of bytes.
+     * @param data the bytes containing the range.
+     * @param from the offset of the range in data.
+     * @param to the offset just after the range.
+     * @return the hash of the range.
+     */
+    private static int hash(byte[] data, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + data[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
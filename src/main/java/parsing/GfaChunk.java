@@ -0,0 +1,491 @@
+package parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Parses the segments and links in a range of lines of a gfa file.
+ * Chunks are parsed in parallel and merged by the parser in the order of the file.
+ * Lines are tokenized directly in the bytes of the chunk, segments are not copied out of it.
+ */
+final class GfaChunk implements Callable<GfaChunk> {
+    /**
+     * Number of fields of a line that are split, the remainder of the line is not inspected.
+     */
+    private static final int MAX_FIELDS = 5;
+
+    /**
+     * The gfa file.
+     */
+    private final File file;
+
+    /**
+     * Byte offset of the first line of the chunk.
+     */
+    private final long start;
+
+    /**
+     * Byte offset just after the last line of the chunk.
+     */
+    private final long end;
+
+    /**
+     * The bytes of the chunk.
+     */
+    private byte[] data;
+
+    /**
+     * Number of segments in the chunk.
+     */
+    private int segmentCount;
+
+    /**
+     * Id of every segment in the chunk.
+     */
+    private int[] segmentIds;
+
+    /**
+     * Offset in data of every segment in the chunk.
+     */
+    private int[] segmentStarts;
+
+    /**
+     * Length of every segment in the chunk.
+     */
+    private int[] segmentLengths;
+
+    /**
+     * Index of every genome name, null if the genomes are listed as integers.
+     */
+    private final GenomeIndex genomeIndices;
+
+    /**
+     * The genome names of the last genome field, consecutive segments usually share the same genomes.
+     */
+    private byte[] lastField;
+
+    /**
+     * Length of the last genome field, -1 if no genome field has been parsed yet.
+     */
+    private int lastFieldLength;
+
+    /**
+     * The genomes resolved from the last genome field.
+     */
+    private int[] lastGenomes;
+
+    /**
+     * Number of genomes resolved from the last genome field.
+     */
+    private int lastGenomeCount;
+
+    /**
+     * Number of genomes of all segments in the chunk.
+     */
+    private int genomeCount;
+
+    /**
+     * The genomes of all segments in the chunk, in the order of the segments.
+     */
+    private int[] genomes;
+
+    /**
+     * Offset in genomes just after the genomes of every segment in the chunk.
+     */
+    private int[] genomeEnds;
+
+    /**
+     * Offsets of the fields of the line that is being parsed, followed by the end of the line.
+     */
+    private int[] fields;
+
+    /**
+     * Number of links in the chunk.
+     */
+    private int edgeCount;
+
+    /**
+     * Origin of every link in the chunk.
+     */
+    private int[] edgeFrom;
+
+    /**
+     * Destination of every link in the chunk.
+     */
+    private int[] edgeTo;
+
+    /**
+     * Constructor for GfaChunk.
+     * @param file the gfa file.
+     * @param start byte offset of the first line of the chunk.
+     * @param end byte offset just after the last line of the chunk.
+     * @param genomeIndices the index of every genome name, null if the genomes are listed as integers.
+     */
+    GfaChunk(File file, long start, long end, GenomeIndex genomeIndices) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+        this.genomeIndices = genomeIndices;
+        segmentIds = new int[64];
+        segmentStarts = new int[64];
+        segmentLengths = new int[64];
+        genomes = new int[64];
+        genomeEnds = new int[64];
+        fields = new int[MAX_FIELDS + 1];
+        lastField = new byte[64];
+        lastFieldLength = -1;
+        lastGenomes = new int[16];
+        edgeFrom = new int[64];
+        edgeTo = new int[64];
+    }
+
+    /**
+     * Reads and parses all lines of the chunk.
+     * @return this chunk.
+     * @throws IOException when the file can't be read.
+     */
+    @Override
+    public GfaChunk call() throws IOException {
+        data = new byte[(int) (end - start)];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        raf.seek(start);
+        raf.readFully(data);
+        raf.close();
+
+        int position = 0;
+        while (position < data.length) {
+            int lineEnd = position;
+            while (lineEnd < data.length && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int length = lineEnd - position;
+            if (length > 0 && data[lineEnd - 1] == '\r') {
+                length--;
+            }
+            parseLine(position, position + length);
+            position = lineEnd + 1;
+        }
+        return this;
+    }
+
+    /**
+     * Parses a single line of the chunk.
+     * @param lineStart the offset of the line in data.
+     * @param lineEnd the offset of the end of the line in data, without its terminator.
+     */
+    private void parseLine(int lineStart, int lineEnd) {
+        if (lineStart == lineEnd || (data[lineStart] != 'S' && data[lineStart] != 'L')) {
+            return;
+        }
+        int count = splitFields(lineStart, lineEnd);
+        if (data[lineStart] == 'S' && count >= 3) {
+            int id = parseInt(fields[1], fields[2] - 1) - 1;
+            if (count >= 5) {
+                parseGenomes(fields[4], fields[5] - 1);
+            }
+            addSegment(id, fields[2], fields[3] - 1 - fields[2]);
+        } else if (data[lineStart] == 'L' && count >= 4) {
+            addEdge(parseInt(fields[1], fields[2] - 1) - 1, parseInt(fields[3], fields[4] - 1) - 1);
+        }
+    }
+
+    /**
+     * Finds the fields of a line.
+     * Field i spans from fields[i] to fields[i + 1] - 1, only the first fields are split.
+     * @param lineStart the offset of the line in data.
+     * @param lineEnd the offset of the end of the line in data.
+     * @return the number of fields found.
+     */
+    private int splitFields(int lineStart, int lineEnd) {
+        int count = 0;
+        fields[count++] = lineStart;
+        for (int i = lineStart; i < lineEnd && count < MAX_FIELDS; i++) {
+            if (data[i] == '\t') {
+                fields[count++] = i + 1;
+            }
+        }
+        int last = lineEnd;
+        for (int i = fields[count - 1]; i < lineEnd; i++) {
+            if (data[i] == '\t') {
+                last = i;
+                break;
+            }
+        }
+        fields[count] = last + 1;
+        return count;
+    }
+
+    /**
+     * Parses a non negative integer in data.
+     * @param from the offset of the first digit.
+     * @param to the offset just after the last digit.
+     * @return the integer.
+     */
+    private int parseInt(int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Empty id in " + file.getName() + " at byte " + (start + from));
+        }
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid id in " + file.getName() + " at byte " + (start + i));
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * Parses the genome field of a segment, like ORI:Z:a;b.
+     * Names are resolved with the shared genome index, unknown genomes are skipped.
+     * A field that equals the previous one reuses its genomes instead of resolving the names again.
+     * @param from the offset of the field in data.
+     * @param to the offset just after the field.
+     */
+    private void parseGenomes(int from, int to) {
+        for (int colons = 0; colons < 2; colons++) {
+            int colon = from;
+            while (colon < to && data[colon] != ':') {
+                colon++;
+            }
+            if (colon < to) {
+                from = colon + 1;
+            }
+        }
+        if (isLastField(from, to)) {
+            for (int i = 0; i < lastGenomeCount; i++) {
+                addGenome(lastGenomes[i]);
+            }
+            return;
+        }
+        int first = genomeCount;
+        int nameStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || data[i] == ';') {
+                int genome = resolveGenome(nameStart, i);
+                if (genome >= 0) {
+                    addGenome(genome);
+                }
+                nameStart = i + 1;
+            }
+        }
+        rememberField(from, to, first);
+    }
+
+    /**
+     * Checks whether the genome names of a field equal those of the last genome field.
+     * @param from the offset of the names in data.
+     * @param to the offset just after the names.
+     * @return true iff the names are the same as the last ones.
+     */
+    private boolean isLastField(int from, int to) {
+        if (lastFieldLength != to - from) {
+            return false;
+        }
+        for (int i = 0; i < lastFieldLength; i++) {
+            if (lastField[i] != data[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remembers the genome names of a field and the genomes they resolved to.
+     * @param from the offset of the names in data.
+     * @param to the offset just after the names.
+     * @param first the offset in genomes of the first genome of the field.
+     */
+    private void rememberField(int from, int to, int first) {
+        lastFieldLength = to - from;
+        if (lastFieldLength > lastField.length) {
+            lastField = new byte[Math.max(lastFieldLength, 2 * lastField.length)];
+        }
+        System.arraycopy(data, from, lastField, 0, lastFieldLength);
+        lastGenomeCount = genomeCount - first;
+        if (lastGenomeCount > lastGenomes.length) {
+            lastGenomes = new int[Math.max(lastGenomeCount, 2 * lastGenomes.length)];
+        }
+        System.arraycopy(genomes, first, lastGenomes, 0, lastGenomeCount);
+    }
+
+    /**
+     * Resolves a single genome of a genome field.
+     * @param from the offset of the genome in data.
+     * @param to the offset just after the genome.
+     * @return the index of the genome, -1 if it is unknown.
+     */
+    private int resolveGenome(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        if (genomeIndices == null) {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                result = result * 10 + digit;
+            }
+            return result;
+        }
+        return genomeIndices.get(data, from, to);
+    }
+
+    /**
+     * Stores a genome of the segment that is being parsed.
+     * @param genome the index of the genome.
+     */
+    private void addGenome(int genome) {
+        if (genomeCount == genomes.length) {
+            genomes = Arrays.copyOf(genomes, genomeCount * 2);
+        }
+        genomes[genomeCount++] = genome;
+    }
+
+    /**
+     * Stores a parsed segment, its genomes have been stored before.
+     * @param id the id of the segment.
+     * @param segmentStart the offset of the segment in data.
+     * @param segmentLength the length of the segment.
+     */
+    private void addSegment(int id, int segmentStart, int segmentLength) {
+        if (segmentCount == segmentIds.length) {
+            segmentIds = Arrays.copyOf(segmentIds, segmentCount * 2);
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            segmentLengths = Arrays.copyOf(segmentLengths, segmentCount * 2);
+            genomeEnds = Arrays.copyOf(genomeEnds, segmentCount * 2);
+        }
+        segmentIds[segmentCount] = id;
+        segmentStarts[segmentCount] = segmentStart;
+        segmentLengths[segmentCount] = segmentLength;
+        genomeEnds[segmentCount] = genomeCount;
+        segmentCount++;
+    }
+
+    /**
+     * Stores a parsed link.
+     * @param from origin of the link.
+     * @param to destination of the link.
+     */
+    private void addEdge(int from, int to) {
+        if (edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeCount++;
+    }
+
+    /**
+     * Getter for the end of the chunk.
+     * @return the byte offset just after the last line of the chunk.
+     */
+    long getEnd() {
+        return end;
+    }
+
+    /**
+     * Getter for the number of segments.
+     * @return the number of segments in the chunk.
+     */
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Getter for the id of a segment.
+     * @param index the index of the segment in the chunk.
+     * @return the id of the segment.
+     */
+    int getSegmentId(int index) {
+        return segmentIds[index];
+    }
+
+    /**
+     * Getter for the bytes of the chunk.
+     * @return the bytes of the chunk, segments are stored at their offsets in it.
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Getter for the offset of a segment.
+     * @param index the index of the segment in the chunk.
+     * @return the offset of the segment in the data of the chunk.
+     */
+    int getSegmentStart(int index) {
+        return segmentStarts[index];
+    }
+
+    /**
+     * Getter for the length of a segment.
+     * @param index the index of the segment in the chunk.
+     * @return the number of nucleotides in the segment.
+     */
+    int getSegmentLength(int index) {
+        return segmentLengths[index];
+    }
+
+    /**
+     * Getter for the genomes of all segments.
+     * @return the genomes of all segments in the order of the segments.
+     */
+    int[] getGenomes() {
+        return genomes;
+    }
+
+    /**
+     * Getter for the offset of the genomes of a segment.
+     * @param index the index of the segment in the chunk.
+     * @return the offset of the first genome of the segment in getGenomes().
+     */
+    int getGenomeStart(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        return genomeEnds[index - 1];
+    }
+
+    /**
+     * Getter for the number of genomes of a segment.
+     * @param index the index of the segment in the chunk.
+     * @return the number of genomes going through the segment.
+     */
+    int getGenomeCount(int index) {
+        return genomeEnds[index] - getGenomeStart(index);
+    }
+
+    /**
+     * Getter for the number of links.
+     * @return the number of links in the chunk.
+     */
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Getter for the origin of a link.
+     * @param index the index of the link in the chunk.
+     * @return the id of the origin of the link.
+     */
+    int getEdgeFrom(int index) {
+        return edgeFrom[index];
+    }
+
+    /**
+     * Getter for the destination of a link.
+     * @param index the index of the link in the chunk.
+     * @return the id of the destination of the link.
+     */
+    int getEdgeTo(int index) {
+        return edgeTo[index];
+    }
+}
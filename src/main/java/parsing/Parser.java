@@ -1,23 +1,36 @@
 package parsing;
 
-import datastructure.Node;
+import datastructure.GenomeDB;
+import datastructure.GenomeDBWriter;
+import datastructure.GraphBuilder;
+import datastructure.GraphStore;
 import datastructure.NodeGraph;
 import datastructure.SegmentDB;
+import datastructure.SegmentDBWriter;
 import javafx.application.Platform;
 import screens.Window;
+import services.ServiceLocator;
+import services.TaskScheduler;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 /**
  * Created by 101010.
@@ -29,9 +42,59 @@ public final class Parser {
     private static Parser instance = null;
 
     /**
-     * Thread the parser is running in.
+     * Contains references to other services.
      */
-    private static Thread parser;
+    private static ServiceLocator serviceLocator;
+
+    /**
+     * The graph that is being loaded last.
+     */
+    private static Future<NodeGraph> task;
+
+    /**
+     * The cache that is being written last.
+     */
+    private static CacheWriter cacheWriter;
+
+    /**
+     * Result of writing the cache last, fails when the cache can't be written.
+     */
+    private static Future<Path> cacheTask;
+
+    /**
+     * Magic number at the start of a cache file.
+     */
+    static final int CACHE_MAGIC = 0x43504743;
+
+    /**
+     * Version of the cache file format.
+     */
+    static final int CACHE_VERSION = 2;
+
+    /**
+     * Size of the header of a cache file in bytes.
+     */
+    static final int CACHE_HEADER_SIZE = 64;
+
+    /**
+     * Offset in the cache header of the fingerprint of the gfa file the cache was created from.
+     */
+    static final int CACHE_FINGERPRINT_OFFSET = 24;
+
+    /**
+     * Number of bytes at the start and at the end of a gfa file that are hashed in its fingerprint.
+     */
+    private static final int FINGERPRINT_SIZE = 1 << 20;
+
+    /**
+     * Minimal number of bytes in a chunk of a gfa file that is parsed by one worker.
+     */
+    private static final int CHUNK_SIZE = 1 << 23;
+
+    /**
+     * Number of bytes at the end of a gfa file searched for the last segment.
+     */
+    private static final int TAIL_SIZE = 1 << 22;
 
     /**
      * Constructor of the parser.
@@ -49,9 +112,21 @@ public final class Parser {
         return instance;
     }
 
+    /**
+     * Register a reference to the service locator, the parser gets its scheduler from it.
+     * @param sL container of references to other services
+     */
+    public static void register(ServiceLocator sL) {
+        if (sL == null) {
+            throw new IllegalArgumentException("The service locator can not be null");
+        }
+        serviceLocator = sL;
+    }
+
 
     /**
      * Parses the data of the inputted file.
+     * The cache is used when it matches the file.
      * @param file The name of the file.
      * @return The graph created from the .gfa file.
      */
@@ -59,14 +134,19 @@ public final class Parser {
         NodeGraph graph = new NodeGraph();
 
         String cacheName = file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 4);
-        graph.setSegmentDB(new SegmentDB(cacheName + "Segments.txt"));
-        File cache = new File(cacheName + ".txt");
-
-        if (cache.exists()) {
-            return parseCache(graph, cache);
-        }
-
-        return parse(file, graph);
+        graph.setSegmentDB(new SegmentDB(cacheName + "Segments.bin"));
+        graph.setGenomeDB(new GenomeDB(cacheName + "Genomes.bin"));
+        File cache = new File(cacheName + "Cache.bin");
+
+        start(graph, () -> {
+            awaitCache(cacheName);
+            if (isCacheValid(file, cache)) {
+                readCache(graph, cache);
+            } else {
+                readFile(file, graph, CHUNK_SIZE);
+            }
+        });
+        return graph;
     }
 
     /**
@@ -76,110 +156,251 @@ public final class Parser {
      * @return The graph created from the .gfa file.
      */
     public NodeGraph parse(final File file, NodeGraph graph) {
+        return parse(file, graph, CHUNK_SIZE);
+    }
+
+    /**
+     * Parses a .gfa file to a graph.
+     * @param file  The name of the target .gfa file.
+     * @param graph The graph the data gets put into.
+     * @param chunkSize The minimal number of bytes in a chunk.
+     * @return The graph created from the .gfa file.
+     */
+    /* package */ NodeGraph parse(final File file, NodeGraph graph, final int chunkSize) {
+        String cacheName = file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 4);
+        start(graph, () -> {
+            awaitCache(cacheName);
+            readFile(file, graph, chunkSize);
+        });
+        return graph;
+    }
+
+    /**
+     * Starts loading a graph in the parser pool, the load that is still running is cancelled.
+     * @param graph The graph that is loaded.
+     * @param load The loading of the graph.
+     */
+    private static synchronized void start(NodeGraph graph, Runnable load) {
+        graph.startLoading(null);
+        task = serviceLocator.getTaskScheduler().submitLatest(TaskScheduler.PARSER, TaskScheduler.PARSER, () -> {
+            try {
+                load.run();
+            } finally {
+                graph.stopLoading();
+            }
+            return graph;
+        });
+    }
+
+    /**
+     * Reads a .gfa file into a graph.
+     * The file is split in chunks at line boundaries which are parsed in parallel
+     * and merged into the graph in the order of the file.
+     * After every chunk the number of complete nodes is published, so the start of the graph can be drawn early.
+     * The cache is written in the background once the graph is complete.
+     * When parsing fails or is cancelled the partly written segment store and genome index are deleted.
+     * @param file  The name of the target .gfa file.
+     * @param graph The graph the data gets put into.
+     * @param chunkSize The minimal number of bytes in a chunk.
+     */
+    private void readFile(File file, NodeGraph graph, int chunkSize) {
+        LinkedList<Future<GfaChunk>> pending = new LinkedList<>();
+        SegmentDBWriter out = null;
+        GenomeDBWriter gw = null;
+        boolean complete = false;
         try {
-            BufferedReader in = new BufferedReader(new FileReader(file));
-            String line = in.readLine();
-            while (!line.startsWith("H\tORI")) {
-                line = in.readLine();
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            long bodyStart = 0;
+            byte[] bytes = readLineBytes(in);
+            while (!toLine(bytes).startsWith("H\tORI")) {
+                bodyStart += bytes.length;
+                bytes = readLineBytes(in);
             }
+            String line = toLine(bytes);
+            bodyStart += bytes.length;
 
             String absoluteFilePath = file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 4);
 
-            String sDB = absoluteFilePath + "Segments.txt";
-            String genomesName = absoluteFilePath + "Genomes.txt";
-            graph.setSegmentDB(new SegmentDB(sDB));
-            File segments = new File(sDB);
-            File genomes = new File(genomesName);
-
-            segments.createNewFile();
-            genomes.createNewFile();
-
-            BufferedWriter out = new BufferedWriter(new FileWriter(segments));
-            BufferedWriter gw = new BufferedWriter(new FileWriter(genomes));
+            String sDB = absoluteFilePath + "Segments.bin";
+            String gDB = absoluteFilePath + "Genomes.bin";
+            Files.deleteIfExists(Paths.get(absoluteFilePath + "Cache.bin"));
+            Files.deleteIfExists(Paths.get(sDB));
+            Files.deleteIfExists(Paths.get(gDB));
+            long[] fingerprint = fingerprint(file);
 
             boolean integerBased = true;
 
-            String[] allGenomes = generateGenomes(gw, line);
+            String[] allGenomes = generateGenomes(line);
+
+            int expectedNodes = countSegments(file);
+            out = new SegmentDBWriter(sDB, expectedNodes);
+            GraphBuilder builder = new GraphBuilder(expectedNodes);
+            gw = new GenomeDBWriter(gDB, allGenomes);
+            graph.startLoading(builder);
 
-            line = in.readLine();
+            line = toLine(readLineBytes(in));
+            in.close();
             integerBased = determineBasis(line, allGenomes);
-            final String line1 = line;
-            final boolean threadIntegerBased = integerBased;
-
-
-
-            parser = new Thread(() -> {
-                try {
-                    int lineCounter = 1;
-                    int nol = getNumberOfLine(file);
-                    String line2 = line1;
-                    while (line2 != null) {
-                        try {
-                            if (line2.startsWith("S")) {
-                                int id;
-                                String segment;
-                                line2 = line2.substring(line2.indexOf('\t') + 1);
-                                id = Integer.parseInt(line2.substring(0, line2.indexOf('\t'))) - 1;
-                                line2 = line2.substring(line2.indexOf('\t') + 1);
-                                segment = line2.substring(0, line2.indexOf('\t'));
-                                graph.addNode(id, new Node(segment.length(), new int[0], new int[0]));
-                                out.write(segment + "\n");
-                                out.flush();
-                                line2 = line2.substring(line2.indexOf('\t') + 1);
-                                line2 = line2.substring(line2.indexOf('\t') + 1);
-                                if (line2.contains("\t")) {
-                                    line2 = line2.substring(0, line2.indexOf("\t"));
-                                }
-                                addGenomes(gw, line2, threadIntegerBased, allGenomes);
-                                line2 = in.readLine();
-                                lineCounter++;
-                                while (line2 != null && line2.startsWith("L")) {
-                                    int from;
-                                    int to;
-                                    line2 = line2.substring(line2.indexOf('\t') + 1);
-                                    from = Integer.parseInt(line2.substring(0, line2.indexOf('\t'))) - 1;
-                                    line2 = line2.substring(line2.indexOf('+') + 2);
-                                    to = Integer.parseInt(line2.substring(0, line2.indexOf('\t'))) - 1;
-                                    graph.addEdge(from, to);
-                                    line2 = in.readLine();
-                                    lineCounter++;
-                                }
-                            } else {
-                                line2 = in.readLine();
-                                lineCounter++;
-                            }
-                            updateProgressBar(lineCounter, nol);
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
+            GenomeIndex genomeIndices = null;
+            if (!integerBased) {
+                genomeIndices = new GenomeIndex(allGenomes);
+            }
+
+            TaskScheduler scheduler = serviceLocator.getTaskScheduler();
+            int threads = Runtime.getRuntime().availableProcessors();
+            long[] bounds = splitChunks(file, bodyStart, chunkSize);
+            int next = 0;
+            while (next < bounds.length - 1 && pending.size() < 2 * threads) {
+                pending.add(scheduler.submit(TaskScheduler.WORKERS, new GfaChunk(file, bounds[next], bounds[next + 1], genomeIndices)));
+                next++;
+            }
+            long total = file.length();
+            while (!pending.isEmpty()) {
+                GfaChunk chunk = pending.removeFirst().get();
+                if (next < bounds.length - 1) {
+                    pending.add(scheduler.submit(TaskScheduler.WORKERS, new GfaChunk(file, bounds[next], bounds[next + 1], genomeIndices)));
+                    next++;
+                }
+                byte[] data = chunk.getData();
+                synchronized (builder) {
+                    for (int i = 0; i < chunk.getSegmentCount(); i++) {
+                        builder.addNode(chunk.getSegmentId(i), chunk.getSegmentLength(i));
+                        out.addSegment(data, chunk.getSegmentStart(i), chunk.getSegmentLength(i));
+                        gw.addNode(chunk.getGenomes(), chunk.getGenomeStart(i), chunk.getGenomeCount(i));
+                    }
+                    for (int i = 0; i < chunk.getEdgeCount(); i++) {
+                        builder.addEdge(chunk.getEdgeFrom(i), chunk.getEdgeTo(i));
                     }
-                    in.close();
-                    out.close();
-                    gw.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
                 }
-            });
-            parser.start();
-
-            new Thread(() -> {
-                try {
-                    parser.join();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                if (chunk.getSegmentCount() > 0) {
+                    graph.setWatermark(chunk.getSegmentId(chunk.getSegmentCount() - 1));
                 }
-
-                createCache(absoluteFilePath, graph);
-            }).start();
+                updateProgressBar(chunk.getEnd(), total);
+            }
+            out.close();
+            graph.setStore(builder.build());
+            graph.setSegmentDB(new SegmentDB(sDB));
+            gw.close();
+            complete = true;
+            graph.setGenomeDB(new GenomeDB(gDB));
+            writeCache(new CacheWriter(absoluteFilePath, graph.getStore(), fingerprint));
         } catch (FileNotFoundException e) {
             System.out.println("Wrong file Destination");
             e.printStackTrace();
-        } catch (IOException e) {
+        } catch (IOException | ExecutionException e) {
             System.out.println("Error while reading file");
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<GfaChunk> chunk : pending) {
+                chunk.cancel(true);
+            }
+            if (!complete) {
+                abort(out, gw);
+            }
         }
+    }
 
-        return graph;
+    /**
+     * Closes and deletes the segment store and genome index of a file that could not be parsed.
+     * @param out The writer of the segment store, null if it was not created.
+     * @param gw The writer of the genome index, null if it was not created.
+     */
+    private static void abort(SegmentDBWriter out, GenomeDBWriter gw) {
+        if (out != null) {
+            try {
+                out.abort();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (gw != null) {
+            try {
+                gw.abort();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Splits the body of a gfa file in chunks that start and end at line boundaries.
+     * @param file The gfa file.
+     * @param start Byte offset of the first line of the body.
+     * @param chunkSize The minimal number of bytes in a chunk.
+     * @return The byte offsets where the chunks start, followed by the end of the file.
+     * @throws IOException when the file can't be read.
+     */
+    private long[] splitChunks(File file, long start, int chunkSize) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        long length = raf.length();
+        long[] bounds = new long[(int) (Math.max(0, length - start) / chunkSize) + 2];
+        int count = 0;
+        bounds[count++] = start;
+        byte[] buffer = new byte[1 << 16];
+        long position = start + chunkSize;
+        while (position < length) {
+            raf.seek(position);
+            long lineEnd = -1;
+            while (lineEnd < 0 && position < length) {
+                int read = raf.read(buffer, 0, (int) Math.min(buffer.length, length - position));
+                for (int i = 0; i < read && lineEnd < 0; i++) {
+                    if (buffer[i] == '\n') {
+                        lineEnd = position + i + 1;
+                    }
+                }
+                position += read;
+            }
+            if (lineEnd < 0 || lineEnd >= length) {
+                break;
+            }
+            bounds[count++] = lineEnd;
+            position = lineEnd + chunkSize;
+        }
+        raf.close();
+        if (start < length) {
+            bounds[count++] = length;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Reads a line from the stream.
+     * @param in The stream to read from.
+     * @return The bytes of the line including its terminator.
+     * @throws IOException when the stream ends before the line starts.
+     */
+    private byte[] readLineBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = in.read();
+        if (b < 0) {
+            throw new IOException("Unexpected end of file");
+        }
+        while (b >= 0) {
+            line.write(b);
+            if (b == '\n') {
+                break;
+            }
+            b = in.read();
+        }
+        return line.toByteArray();
+    }
+
+    /**
+     * Converts the bytes of a line to a string without the line terminator.
+     * @param bytes The bytes of the line.
+     * @return The line.
+     */
+    private String toLine(byte[] bytes) {
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\n') {
+            length--;
+        }
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
     }
 
     /**
@@ -189,171 +410,251 @@ public final class Parser {
      * @return A NodeGraph containing the data cached in the file.
      */
     public NodeGraph parseCache(NodeGraph graph, File cache) {
+        start(graph, () -> readCache(graph, cache));
+        return graph;
+    }
+
+    /**
+     * Reads the cache file into a graph.
+     * @param graph The NodeGraph the cache is parsed into.
+     * @param cache The file containing the cached data.
+     */
+    private void readCache(NodeGraph graph, File cache) {
         try {
-            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(cache)));
-            int graphSize = Integer.parseInt(in.readLine());
-            graph.getNodes().ensureCapacity(graphSize);
-
-            parser = new Thread(() -> {
-                int lineCounter = 0;
-                try {
-                    int nol = getNumberOfLine(cache);
-                    for (int i = 0; i < graphSize; i++) {
-                        int length = Integer.parseInt(in.readLine());
-                        int outLength = Integer.parseInt(in.readLine());
-                        int[] outgoing = new int[outLength];
-                        String[] tempLine = in.readLine().split("\t");
-                        for (int j = 0; j < outLength; j++) {
-                            outgoing[j] = Integer.parseInt(tempLine[j]);
-                        }
-                        int inLength = Integer.parseInt(in.readLine());
-                        int[] incoming = new int[inLength];
-                        tempLine = in.readLine().split("\t");
-                        for (int j = 0; j < inLength; j++) {
-                            incoming[j] = Integer.parseInt(tempLine[j]);
-                        }
-                        Node temp = new Node(length, outgoing, incoming);
-                        graph.addNodeCache(i, temp);
-                        lineCounter = lineCounter + 5;
-
-                        updateProgressBar(lineCounter, nol);
-                    }
-                    in.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-            parser.start();
+            FileChannel in = new FileInputStream(cache).getChannel();
+            ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() < CACHE_HEADER_SIZE || header.getInt(0) != CACHE_MAGIC
+                    || header.getInt(4) != CACHE_VERSION) {
+                in.close();
+                throw new IOException("Unsupported cache format in " + cache.getName());
+            }
+            int graphSize = header.getInt(8);
+            int outSize = header.getInt(12);
+            int inSize = header.getInt(16);
+            long total = in.size();
+
+            long position = CACHE_HEADER_SIZE;
+            int[] lengths = readInts(in, position, graphSize);
+            position += 4L * graphSize;
+            updateProgressBar(position, total);
+            int[] outOffsets = readInts(in, position, graphSize + 1);
+            position += 4L * (graphSize + 1);
+            updateProgressBar(position, total);
+            int[] outTargets = readInts(in, position, outSize);
+            position += 4L * outSize;
+            updateProgressBar(position, total);
+            int[] inOffsets = readInts(in, position, graphSize + 1);
+            position += 4L * (graphSize + 1);
+            updateProgressBar(position, total);
+            int[] inTargets = readInts(in, position, inSize);
+            in.close();
+
+            graph.setStore(new GraphStore(lengths, outOffsets, outTargets, inOffsets, inTargets));
+            updateProgressBar(total, total);
         } catch (IOException e) {
             System.out.println("Error while reading cache");
             e.printStackTrace();
         }
-        return graph;
     }
 
     /**
-     * Creates cache file.
-     * @param filename the name of the file.
-     * @param graph the graph to be cached.
+     * Reads a section of ints from the cache.
+     * @param channel The channel of the cache file.
+     * @param position The position of the section in the file.
+     * @param size The number of ints in the section.
+     * @return The ints in the section.
+     * @throws IOException when the cache can't be read.
      */
-    private void createCache(String filename, NodeGraph graph) {
-        try {
-            File file = new File(filename + ".txt");
-            int graphSize = graph.getSize();
-            OutputStreamWriter ow = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-            BufferedWriter writer = new BufferedWriter(ow);
-            writer.write(Integer.toString(graphSize) + "\n");
-            int size;
-            for (int i = 0; i < graphSize; i++) {
-                Node temp = graph.getNode(i);
-                writer.write(Integer.toString(temp.getLength()) + "\n");
-                int[] tempList = temp.getOutgoingEdges();
-                size = tempList.length;
-                writer.write(Integer.toString(size) + "\n");
-                for (int j = 0; j < size; j++) {
-                    writer.write(Integer.toString(tempList[j]) + "\t");
-                }
-                writer.newLine();
-                tempList = temp.getIncomingEdges();
-                size = tempList.length;
-                writer.write(Integer.toString(size) + "\n");
-                for (int j = 0; j < size; j++) {
-                    writer.write(Integer.toString(tempList[j]) + "\t");
-                }
-                writer.newLine();
+    private int[] readInts(FileChannel channel, long position, int size) throws IOException {
+        int[] result = new int[size];
+        channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * size).asIntBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * Starts writing a cache in the cache pool.
+     * @param writer the writer of the cache.
+     */
+    private static synchronized void writeCache(CacheWriter writer) {
+        cacheWriter = writer;
+        cacheTask = serviceLocator.getTaskScheduler().submit(TaskScheduler.CACHE, writer);
+    }
+
+    /**
+     * Waits until the cache that is being written for the same file is complete,
+     * so its sidecars are not rewritten and a cache that is almost written is not ignored.
+     * A cache that is written for another file doesn't delay loading.
+     * @param filename the name of the gfa file without its extension.
+     */
+    private static void awaitCache(String filename) {
+        Future<Path> task;
+        synchronized (Parser.class) {
+            if (cacheWriter == null || !cacheWriter.getTarget().equals(Paths.get(filename + "Cache.bin"))) {
+                return;
             }
-            writer.close();
-            ow.close();
+            task = cacheTask;
+        }
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            System.out.println("Cache was not written");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Gets the result of writing the cache last.
+     * @return the future location of the cache, null if no cache has been written.
+     */
+    public static synchronized Future<Path> getCacheTask() {
+        return cacheTask;
+    }
+
+    /**
+     * Gets the progress of writing the cache last.
+     * @return the fraction of the cache that is written, 1 if no cache is being written.
+     */
+    public static synchronized double getCacheProgress() {
+        if (cacheWriter == null) {
+            return 1.0;
         }
+        return cacheWriter.getProgress();
     }
 
     /**
-     * Writes all genomes in the string to the file given by the writer.
-     * @param gw Writer that writes the string.
-     * @param str String with the genomes.
-     * @param hasInt true iff the genomes displayed as integers instead of names.
-     * @param genomeList list of all genomes in the gfa file.
-     * @throws IOException when the writer can't write to the file.
+     * Checks whether a cache can be used instead of parsing the gfa file.
+     * The cache has to be complete, of the current format and created from a file with the same fingerprint,
+     * and the segment and genome databases written alongside it have to exist.
+     * @param file The gfa file.
+     * @param cache The cache file.
+     * @return true iff the cache matches the gfa file.
      */
-    private void addGenomes(BufferedWriter gw, String str, boolean hasInt, String[] genomeList) throws IOException {
-        str = str.substring(str.indexOf(':') + 1);
-        str = str.substring(str.indexOf(':') + 1);
-        String[] genomeTemp = str.split(";");
-        gw.write(genomeTemp.length + "\t");
-        for (String string : genomeTemp) {
-            if (hasInt) {
-                gw.write(string + "\t");
-            } else {
-                for (int i = 0; i < genomeList.length; i++) {
-                    if (string.equals(genomeList[i])) {
-                        gw.write(i + "\t");
-                        break;
-                    }
+    /* package */ boolean isCacheValid(File file, File cache) {
+        String cacheName = file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 4);
+        if (!cache.exists() || !new File(cacheName + "Segments.bin").exists()
+                || !new File(cacheName + "Genomes.bin").exists()) {
+            return false;
+        }
+        try {
+            FileChannel in = new FileInputStream(cache).getChannel();
+            ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                continue;
+            }
+            long size = in.size();
+            in.close();
+            if (header.hasRemaining() || header.getInt(0) != CACHE_MAGIC || header.getInt(4) != CACHE_VERSION) {
+                return false;
+            }
+            long nodes = header.getInt(8);
+            long expected = CACHE_HEADER_SIZE + 4L * (3 * nodes + 2 + header.getInt(12) + header.getInt(16));
+            if (size != expected) {
+                return false;
+            }
+            long[] fingerprint = fingerprint(file);
+            for (int i = 0; i < fingerprint.length; i++) {
+                if (header.getLong(CACHE_FINGERPRINT_OFFSET + 8 * i) != fingerprint[i]) {
+                    return false;
                 }
             }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-        gw.write("\n");
-        gw.flush();
     }
 
     /**
-     * Returns the number of lines in the given file.
-     * @param file The file we want to know the number of line of.
-     * @return The number of lines the given file contains.
-     * @throws IOException If the file cant be found this exception will be thrown.
+     * Computes the fingerprint of a gfa file: its size, its modification time and a hash of its content.
+     * Only the start and the end of the file are hashed, so the fingerprint of a large file is cheap to check.
+     * @param file The gfa file.
+     * @return The size, the modification time and the hash of the file.
+     * @throws IOException when the file can't be read.
      */
-    private int getNumberOfLine(File file) throws IOException {
-        LineNumberReader lnr = new LineNumberReader(new FileReader(file));
-        lnr.skip(Long.MAX_VALUE);
-        int nol = lnr.getLineNumber() + 1;
-        lnr.close();
+    private long[] fingerprint(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        long length = raf.length();
+        byte[] buffer = new byte[(int) Math.min(length, FINGERPRINT_SIZE)];
+        raf.readFully(buffer);
+        crc.update(buffer);
+        if (length > FINGERPRINT_SIZE) {
+            buffer = new byte[(int) Math.min(length - FINGERPRINT_SIZE, FINGERPRINT_SIZE)];
+            raf.seek(length - buffer.length);
+            raf.readFully(buffer);
+            crc.update(buffer);
+        }
+        raf.close();
+        return new long[]{length, file.lastModified(), crc.getValue()};
+    }
 
-        return nol;
+    /**
+     * Determines the number of segments from the id of the last segment in the file.
+     * Only the end of the file is read, so this is much cheaper than a pass over the whole file.
+     * @param file The gfa file.
+     * @return The id of the last segment, or 0 if no segment starts near the end of the file.
+     * @throws IOException when the file can't be read.
+     */
+    private int countSegments(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        long end = raf.length();
+        long start = Math.max(0, end - TAIL_SIZE);
+        byte[] tail = new byte[(int) (end - start)];
+        raf.seek(start);
+        raf.readFully(tail);
+        raf.close();
+        for (int i = tail.length - 2; i >= 0; i--) {
+            boolean lineStart = i > 0 && tail[i - 1] == '\n' || i == 0 && start == 0;
+            if (lineStart && tail[i] == 'S' && tail[i + 1] == '\t') {
+                int id = 0;
+                for (int j = i + 2; j < tail.length && tail[j] >= '0' && tail[j] <= '9'; j++) {
+                    id = id * 10 + tail[j] - '0';
+                }
+                return id;
+            }
+        }
+        return 0;
     }
 
     /**
-     * Update the progressbar if enough progress is made.
-     * @param lineCount The current line the parser is within the file.
-     * @param nol The total number of lines in the file that is currently being parsed.
+     * Update the progressbar.
+     * @param done The number of bytes of the file that are processed.
+     * @param total The size of the file that is currently being parsed.
      */
-    private void updateProgressBar(int lineCount, int nol) {
-        if (nol < 100 || lineCount % (nol / 100) == 0) {
-            Platform.runLater(() -> Window.setProgress((double) lineCount / (double) nol));
+    private void updateProgressBar(long done, long total) {
+        double progress = 1.0;
+        if (total > 0) {
+            progress = Math.min(1.0, (double) done / (double) total);
         }
+        final double threadProgress = progress;
+        Platform.runLater(() -> Window.setProgress(threadProgress));
     }
 
     /**
-     * Gets the thread the parser is running in.
-     * @return thread in which parser is running.
+     * Gets the graph that is being loaded last.
+     * @return the future graph, null if no graph has been loaded.
      */
-    public static Thread getThread() {
-        return parser;
+    public static synchronized Future<NodeGraph> getTask() {
+        return task;
     }
 
     /**
-     * Reads all genomes of the gfa file and caches them.
-     * @param gw the writer used to write to the cache.
+     * Reads all genomes of the gfa file.
      * @param line the line on which all genomes are listed.
-     * @throws IOException when the writer can't write to the file.
      * @return the array of all genomes in the gfa file.
      */
-    private String[] generateGenomes(BufferedWriter gw, String line) throws IOException {
+    private String[] generateGenomes(String line) {
         String str = line.substring(line.indexOf(':') + 1);
         str = str.substring(str.indexOf(':') + 1);
         if (str.contains("\t")) {
             str = str.substring(0, str.indexOf("\t"));
         }
-        String[] allGenomes = str.split(";");
-        gw.write(allGenomes.length + "\t");
-        for (int i = 0; i < allGenomes.length; i++) {
-            gw.write(allGenomes[i] + "\t");
-        }
-        gw.write("\n");
-        gw.flush();
-        return allGenomes;
+        return str.split(";");
     }
 
     /**
@@ -3,6 +3,7 @@ package screens;
 import datastructure.DrawNode;
 import datastructure.NodeGraph;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
@@ -22,10 +23,15 @@ import parsing.Parser;
 import screens.scenes.GraphScene;
 import screens.scenes.InteractionScene;
 import services.ServiceLocator;
+import services.TaskScheduler;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.LinkedList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
@@ -219,28 +225,33 @@ public class Window extends Application {
                     File file = serviceLocator.getFileSelector().showOpenDialog(stage);
                     if (file != null && file.exists()) {
                         pB.setVisible(true);
+                        Future<Path> previousCache = Parser.getCacheTask();
                         NodeGraph.setCurrentInstance(Parser.getInstance().parse(file));
+                        Future<NodeGraph> loading = Parser.getTask();
+                        TaskScheduler scheduler = serviceLocator.getTaskScheduler();
 
-                        new Thread() {
-                            public void run() {
-                                try {
-                                    Parser.getThread().join();
-
-                                    this.join(500);
-                                } catch (InterruptedException e) {
-                                    e.printStackTrace();
-                                }
-                                pB.setVisible(false);
-                                pB.setProgress(0.0);
+                        scheduler.submitLatest(TaskScheduler.HELPER, "progress", () -> {
+                            try {
+                                loading.get();
+                                showCacheProgress(previousCache);
+                                Thread.sleep(500);
+                            } catch (InterruptedException | CancellationException e) {
+                                return;
+                            } catch (ExecutionException e) {
+                                e.printStackTrace();
                             }
-                        }.start();
+                            pB.setVisible(false);
+                            pB.setProgress(0.0);
+                        });
 
-                        Thread drawing = graphScene.drawGraph(0, 200);
+                        Future<?> drawing = graphScene.drawGraph(0, 200);
 
-                        new Thread(() -> {
+                        scheduler.submitLatest(TaskScheduler.HELPER, "center", () -> {
                             try {
-                                drawing.join();
-                            } catch (InterruptedException e) {
+                                drawing.get();
+                            } catch (InterruptedException | CancellationException e) {
+                                return;
+                            } catch (ExecutionException e) {
                                 e.printStackTrace();
                             }
 
@@ -249,7 +260,7 @@ public class Window extends Application {
                             LinkedList<DrawNode> drawNodes = NodeGraph.getCurrentInstance().getDrawNodes();
                             graphScene.setTranslateX((-drawNodes.getLast().getX() + graphScene.getWidth() / 2) * graphScene.getScaleX() - graphScene.getWidth() / 2);
                             logger.info("file has been selected");
-                        }).start();
+                        });
                     }
                 }
         );
@@ -323,6 +334,32 @@ public class Window extends Application {
         newStage.show();
     }
 
+    /**
+     * Shows the progress of writing the cache of the loaded file until it is written.
+     * The user is told when the cache could not be written, as the file will be parsed again next time.
+     * @param previous the cache that was written last before the file was loaded.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    private static void showCacheProgress(Future<Path> previous) throws InterruptedException {
+        Future<Path> cache = Parser.getCacheTask();
+        if (cache == null || cache == previous) {
+            return;
+        }
+        while (!cache.isDone()) {
+            double progress = Parser.getCacheProgress();
+            Platform.runLater(() -> setProgress(progress));
+            Thread.sleep(100);
+        }
+        try {
+            cache.get();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            Platform.runLater(() -> errorPopup("The cache could not be written, \nthe file will be parsed again when it is opened."));
+        } catch (CancellationException e) {
+            return;
+        }
+    }
+
     /**
      * Sets the progress of the ProgressBar to the given value.
      * @param progress the new progress to be shown.
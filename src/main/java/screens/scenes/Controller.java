@@ -14,6 +14,16 @@ import services.ServiceLocator;
  * Controller class to allow input that will be used for interacting with the graph.
  */
 public class Controller extends GridPane {
+    /**
+     * Smallest radius that can be drawn.
+     */
+    static final int MIN_RADIUS = 5;
+
+    /**
+     * Largest radius that can be drawn, large drawings are painted on a canvas.
+     */
+    static final int MAX_RADIUS = 50000;
+
     /**
      * Labels.
      */
@@ -90,8 +100,8 @@ public class Controller extends GridPane {
         } else if (Integer.parseInt(centerInputField.getText()) < 0
                 || Integer.parseInt(centerInputField.getText()) >= NodeGraph.getCurrentInstance().getSize()) {
             Window.errorPopup("Input center id is out of bounds, \nplease provide a different input id.");
-        } else if (Integer.parseInt(radiusInputField.getText()) < 5
-                || Integer.parseInt(radiusInputField.getText()) > 500) {
+        } else if (Integer.parseInt(radiusInputField.getText()) < MIN_RADIUS
+                || Integer.parseInt(radiusInputField.getText()) > MAX_RADIUS) {
             Window.errorPopup("Input radius is out of bounds, \nplease provide a different radius.");
         } else {
             graphScene.drawGraph(Integer.parseInt(centerInputField.getText()), Integer.parseInt(radiusInputField.getText()));
@@ -105,8 +115,8 @@ public class Controller extends GridPane {
      */
     public int getRadius() {
         if (radiusInputField.getText().length() == 0 || !radiusInputField.getText().contains("\\D")
-                || Integer.parseInt(radiusInputField.getText()) < 5
-                || Integer.parseInt(radiusInputField.getText()) > 500) {
+                || Integer.parseInt(radiusInputField.getText()) < MIN_RADIUS
+                || Integer.parseInt(radiusInputField.getText()) > MAX_RADIUS) {
             throw new IllegalArgumentException("Radius is invalid.");
         }
         return Integer.parseInt(radiusInputField.getText());
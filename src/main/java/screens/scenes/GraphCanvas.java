@@ -0,0 +1,273 @@
+package screens.scenes;
+
+import datastructure.DrawNode;
+import datastructure.SpatialIndex;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Draws the nodes and edges of a large graph onto a single canvas instead of a shape per element.
+ * The canvas only covers the viewport and is painted at the resolution of the screen,
+ * so it stays sharp when zooming and its size doesn't depend on the size of the graph.
+ * The elements are kept in a spatial index, which is used to find the elements in the viewport
+ * and the element under the cursor.
+ */
+public final class GraphCanvas extends Canvas {
+    /**
+     * Distance in pixels within which a click selects a line.
+     */
+    private static final double LINE_TOLERANCE = 3;
+
+    /**
+     * Nodes and lines of the graph.
+     */
+    private final SpatialIndex<javafx.scene.Node> index;
+
+    /**
+     * Nodes of the graph in the order they are drawn.
+     */
+    private final ArrayList<DrawNode> nodes;
+
+    /**
+     * Lines of the graph in the order they are drawn.
+     */
+    private final ArrayList<Line> lines;
+
+    /**
+     * Left side of the viewport in layout coordinates.
+     */
+    private double viewMinX;
+
+    /**
+     * Top of the viewport in layout coordinates.
+     */
+    private double viewMinY;
+
+    /**
+     * Right side of the viewport in layout coordinates.
+     */
+    private double viewMaxX;
+
+    /**
+     * Bottom of the viewport in layout coordinates.
+     */
+    private double viewMaxY;
+
+    /**
+     * Number of canvas pixels per horizontal layout unit.
+     */
+    private double pixelsX;
+
+    /**
+     * Number of canvas pixels per vertical layout unit.
+     */
+    private double pixelsY;
+
+    /**
+     * Constructor for GraphCanvas.
+     * @param shapes the nodes and lines of the graph.
+     */
+    public GraphCanvas(List<javafx.scene.Node> shapes) {
+        index = new SpatialIndex<>(GraphScene.CELL_SIZE);
+        nodes = new ArrayList<>();
+        lines = new ArrayList<>();
+        pixelsX = 1;
+        pixelsY = 1;
+        addAll(shapes);
+    }
+
+    /**
+     * Adds nodes and lines to the canvas and repaints it.
+     * @param shapes the nodes and lines to add, other shapes are ignored.
+     */
+    public void addAll(List<javafx.scene.Node> shapes) {
+        for (javafx.scene.Node shape : shapes) {
+            if (insert(index, shape)) {
+                if (shape instanceof DrawNode) {
+                    nodes.add((DrawNode) shape);
+                } else {
+                    lines.add((Line) shape);
+                }
+            }
+        }
+        paint();
+    }
+
+    /**
+     * Adds a node or line to a spatial index by its bounding box.
+     * @param index the spatial index.
+     * @param shape the node or line.
+     * @return true iff the shape is a node or a line and has been added.
+     */
+    static boolean insert(SpatialIndex<javafx.scene.Node> index, javafx.scene.Node shape) {
+        if (shape instanceof DrawNode) {
+            DrawNode node = (DrawNode) shape;
+            index.insert(node, node.getX(), node.getY(), node.getX() + node.getWidth(), node.getY() + node.getHeight());
+            return true;
+        } else if (shape instanceof Line) {
+            Line line = (Line) shape;
+            index.insert(line, line.getStartX(), line.getStartY(), line.getEndX(), line.getEndY());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes nodes and lines from the canvas and repaints it.
+     * The lists are filtered in a single pass, so removing many shapes doesn't search the lists per shape.
+     * @param shapes the nodes and lines to remove.
+     */
+    public void removeAll(List<javafx.scene.Node> shapes) {
+        Set<javafx.scene.Node> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (javafx.scene.Node shape : shapes) {
+            if (index.remove(shape)) {
+                removed.add(shape);
+            }
+        }
+        if (!removed.isEmpty()) {
+            nodes.removeIf(removed::contains);
+            lines.removeIf(removed::contains);
+        }
+        paint();
+    }
+
+    /**
+     * Gets the nodes and lines on the canvas.
+     * @return the lines followed by the nodes.
+     */
+    public List<javafx.scene.Node> getShapes() {
+        ArrayList<javafx.scene.Node> result = new ArrayList<>(lines.size() + nodes.size());
+        result.addAll(lines);
+        result.addAll(nodes);
+        return result;
+    }
+
+    /**
+     * Getter for the spatial index of the nodes and lines on the canvas.
+     * @return the spatial index.
+     */
+    public SpatialIndex<javafx.scene.Node> getIndex() {
+        return index;
+    }
+
+    /**
+     * Moves the canvas to the part of the layout that is shown and repaints it.
+     * @param minX left side of the viewport in layout coordinates.
+     * @param minY top of the viewport in layout coordinates.
+     * @param maxX right side of the viewport in layout coordinates.
+     * @param maxY bottom of the viewport in layout coordinates.
+     * @param pixelsX number of screen pixels per horizontal layout unit.
+     * @param pixelsY number of screen pixels per vertical layout unit.
+     */
+    public void setViewport(double minX, double minY, double maxX, double maxY, double pixelsX, double pixelsY) {
+        viewMinX = minX;
+        viewMinY = minY;
+        viewMaxX = maxX;
+        viewMaxY = maxY;
+        this.pixelsX = pixelsX;
+        this.pixelsY = pixelsY;
+        paint();
+    }
+
+    /**
+     * Paints the nodes and lines in the viewport.
+     * The canvas has one pixel per screen pixel and is scaled back to the layout coordinates of the viewport.
+     */
+    public void paint() {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        if (viewMaxX <= viewMinX || viewMaxY <= viewMinY || pixelsX <= 0 || pixelsY <= 0) {
+            return;
+        }
+        double width = Math.ceil((viewMaxX - viewMinX) * pixelsX);
+        double height = Math.ceil((viewMaxY - viewMinY) * pixelsY);
+        setLayoutX(viewMinX);
+        setLayoutY(viewMinY);
+        setWidth(width);
+        setHeight(height);
+        setScaleX(1 / pixelsX);
+        setScaleY(1 / pixelsY);
+        setTranslateX(width * (1 / pixelsX - 1) / 2);
+        setTranslateY(height * (1 / pixelsY - 1) / 2);
+
+        List<javafx.scene.Node> shapes = index.query(viewMinX, viewMinY, viewMaxX, viewMaxY);
+        gc.save();
+        gc.scale(pixelsX, pixelsY);
+        gc.translate(-viewMinX, -viewMinY);
+        gc.setStroke(Color.BLACK);
+        for (javafx.scene.Node shape : shapes) {
+            if (shape instanceof Line) {
+                Line line = (Line) shape;
+                gc.setLineWidth(line.getStrokeWidth());
+                gc.strokeLine(line.getStartX(), line.getStartY(), line.getEndX(), line.getEndY());
+            }
+        }
+        for (javafx.scene.Node shape : shapes) {
+            if (shape instanceof DrawNode) {
+                DrawNode node = (DrawNode) shape;
+                gc.setFill(node.getFill());
+                gc.fillRect(node.getX(), node.getY(), node.getWidth(), node.getHeight());
+            }
+        }
+        gc.restore();
+    }
+
+    /**
+     * Finds the node or line at a point of the canvas, nodes are preferred over lines.
+     * @param x x-coordinate in the canvas.
+     * @param y y-coordinate in the canvas.
+     * @return the DrawNode or Line at the point, null if there is none.
+     */
+    public javafx.scene.Node pick(double x, double y) {
+        double layoutX = x / pixelsX + viewMinX;
+        double layoutY = y / pixelsY + viewMinY;
+        double toleranceX = LINE_TOLERANCE / pixelsX;
+        double toleranceY = LINE_TOLERANCE / pixelsY;
+        Line closest = null;
+        double distance = LINE_TOLERANCE;
+        for (javafx.scene.Node shape : index.query(layoutX - toleranceX, layoutY - toleranceY, layoutX + toleranceX, layoutY + toleranceY)) {
+            if (shape instanceof DrawNode && ((DrawNode) shape).contains(layoutX, layoutY)) {
+                return shape;
+            }
+            if (shape instanceof Line) {
+                Line line = (Line) shape;
+                double d = distance(line, layoutX, layoutY, pixelsX, pixelsY);
+                if (d <= distance) {
+                    distance = d;
+                    closest = line;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Computes the distance in pixels between a point and a line segment.
+     * @param line the line segment.
+     * @param x x-coordinate of the point.
+     * @param y y-coordinate of the point.
+     * @param pixelsX number of pixels per horizontal layout unit.
+     * @param pixelsY number of pixels per vertical layout unit.
+     * @return the distance in pixels.
+     */
+    private static double distance(Line line, double x, double y, double pixelsX, double pixelsY) {
+        double dx = (line.getEndX() - line.getStartX()) * pixelsX;
+        double dy = (line.getEndY() - line.getStartY()) * pixelsY;
+        double px = (x - line.getStartX()) * pixelsX;
+        double py = (y - line.getStartY()) * pixelsY;
+        double length = dx * dx + dy * dy;
+        double t = 0;
+        if (length > 0) {
+            t = Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+        }
+        return Math.hypot(px - t * dx, py - t * dy);
+    }
+}
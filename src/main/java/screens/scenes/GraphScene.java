@@ -2,26 +2,34 @@ package screens.scenes;
 
 import datastructure.DrawNode;
 import datastructure.DummyNode;
-import datastructure.Node;
+import datastructure.GraphStore;
 import datastructure.NodeGraph;
+import datastructure.SpatialIndex;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.event.EventHandler;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Pair;
-import parsing.Parser;
 import screens.FXElementsFactory;
 import screens.nodehandlers.INodeHandler;
 import screens.nodehandlers.NodeCenter;
 import screens.nodehandlers.NodeInfo;
 import services.ServiceLocator;
+import services.TaskScheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of the window that handles graph visualization.
@@ -54,6 +62,41 @@ import java.util.Set;
      */
     private ServiceLocator serviceLocator;
 
+    /**
+     * Number of nodes from which a drawing is painted on a canvas instead of added as shapes.
+     */
+    static final int CANVAS_THRESHOLD = 2000;
+
+    /**
+     * Width and height of the cells of the spatial index, about the distance between two layers.
+     */
+    static final double CELL_SIZE = 100;
+
+    /**
+     * Generation of the last drawing, shapes of older drawings are not added to the scene.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Canvas the current drawing is painted on, null if the drawing consists of shapes.
+     */
+    private GraphCanvas canvas;
+
+    /**
+     * Index of the drawn nodes and lines by their position, shared with the canvas if there is one.
+     */
+    private SpatialIndex<javafx.scene.Node> index = new SpatialIndex<>(CELL_SIZE);
+
+    /**
+     * Shapes that are shown, shapes outside of the viewport are hidden.
+     */
+    private Set<javafx.scene.Node> visible = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * True while a repaint for a change of the viewport is waiting to run on the JavaFX thread.
+     */
+    private boolean viewportPending;
+
     /**
      * Event handler for when a node or edge is clicked.
      */
@@ -66,8 +109,21 @@ import java.util.Set;
         }
      };
 
+    /**
+     * Event handler for when the canvas is clicked, the clicked node or edge is looked up in the canvas.
+     */
+    private EventHandler<MouseEvent> canvasClick = event -> {
+        javafx.scene.Node shape = ((GraphCanvas) event.getSource()).pick(event.getX(), event.getY());
+        if (shape instanceof DrawNode) {
+            state.handleNode((DrawNode) shape);
+        } else if (shape instanceof Line) {
+            state.handleLine((Line) shape);
+        }
+    };
+
     /**
      * GraphScene pane constructor.
+     * The drawing follows the viewport when the scene is zoomed, moved or resized.
      * @param sL ServiceLocator for locating services registered in that object.
      */
      public GraphScene(ServiceLocator sL) {
@@ -76,6 +132,13 @@ import java.util.Set;
          state = info;
          this.fxElementsFactory = sL.getFxElementsFactory();
          this.serviceLocator = sL;
+         ChangeListener<Number> view = (observable, oldValue, newValue) -> requestViewport();
+         translateXProperty().addListener(view);
+         translateYProperty().addListener(view);
+         scaleXProperty().addListener(view);
+         scaleYProperty().addListener(view);
+         widthProperty().addListener(view);
+         heightProperty().addListener(view);
      }
 
     /**
@@ -91,50 +154,78 @@ import java.util.Set;
 
     /**
      * Draws graph on the screen.
+     * Drawing starts as soon as the nodes up to the radius beyond the center have been parsed.
+     * While the graph is loading the drawing uses a snapshot of the parsed nodes,
+     * and the same generation is drawn again once the whole graph has been parsed.
+     * Every drawing gets a new generation, a drawing that is still running is cancelled
+     * and the shapes of older generations are discarded.
      * @param id Id of the node/segment.
      * @param radius Radius.
-     * @return The thread drawing is running in.
+     * @return The future that completes when the graph is drawn.
      */
-    public Thread drawGraph(final int id, final int radius) {
+    public Future<?> drawGraph(final int id, final int radius) {
+        final long request = generation.incrementAndGet();
         this.getChildren().clear();
+        canvas = null;
+        index = new SpatialIndex<>(CELL_SIZE);
+        visible.clear();
         serviceLocator.getController().setCurrentCenter(id);
-        Thread thread = new Thread() {
-            public void run() {
-                try {
-                    Thread parser = Parser.getThread();
-                    if (parser != null) {
-                        parser.join();
+        return serviceLocator.getTaskScheduler().submitLatest(TaskScheduler.DRAWING, TaskScheduler.DRAWING, () -> {
+            NodeGraph nodeGraph = NodeGraph.getCurrentInstance();
+            try {
+                GraphStore snapshot = nodeGraph.awaitNodes(id + radius + 1);
+                if (snapshot != null) {
+                    nodeGraph.setView(snapshot);
+                    try {
+                        drawGraphUtil(id, radius, request);
+                    } finally {
+                        nodeGraph.setView(null);
+                    }
+                    if (nodeGraph.awaitStore() == null || isStale(request)) {
+                        return;
                     }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
                 }
-                drawGraphUtil(id, radius);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-        };
-        thread.start();
-        return thread;
+            drawGraphUtil(id, radius, request);
+        });
     }
 
     /**
      * The recursive method used to draw all nodes within the radius from the center node.
      * @param center The node to take as center.
      * @param radius The maximum depth we want to go.
+     * @param request The generation of the drawing.
      */
-    private void drawGraphUtil(int center, int radius) {
+    private void drawGraphUtil(int center, int radius, long request) {
         NodeGraph nodeGraph = NodeGraph.getCurrentInstance();
         nodeGraph.generateDrawNodes(center, radius);
-        ArrayList<Node> nodes = nodeGraph.getNodes();
+        if (isStale(request)) {
+            return;
+        }
         LinkedList<DrawNode> drawNodes = nodeGraph.getDrawNodes();
-        LinkedList<DummyNode> dummyNodes = nodeGraph.getDummyNodes();
+        ArrayList<DummyNode> dummyNodes = new ArrayList<>(nodeGraph.getDummyNodes());
+        HashMap<DummyNode, ArrayList<Integer>> positions = new HashMap<>(2 * dummyNodes.size());
+        for (int i = 0; i < dummyNodes.size(); i++) {
+            positions.computeIfAbsent(dummyNodes.get(i), k -> new ArrayList<>(1)).add(i);
+        }
+        ArrayList<javafx.scene.Node> batch = new ArrayList<>(3 * drawNodes.size() + dummyNodes.size());
         for (DrawNode dNode : drawNodes) {
+            if (isStale(request)) {
+                return;
+            }
             dNode.setX(dNode.getX() - dNode.getWidth() / 2);
             dNode.setOnMousePressed(click);
-            Platform.runLater(() -> this.getChildren().add(dNode));
+            batch.add(dNode);
             DrawNode nOut;
-            for (int i : nodes.get(dNode.getIndex()).getOutgoingEdges()) {
+            int degree = nodeGraph.getOutDegree(dNode.getIndex());
+            for (int k = 0; k < degree; k++) {
+                int i = nodeGraph.getOutTarget(dNode.getIndex(), k);
                 nOut = nodeGraph.getDrawNode(i);
                 if (nOut != null && nOut.getBoundsInLocal().getMinX() - dNode.getBoundsInLocal().getMaxX() <= 100) {
-                    drawLine(dNode.getIndex() + "-" + i, 2, dNode.getBoundsInLocal().getMaxX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMinX(), nOut.getBoundsInLocal().getMinY() + 5);
+                    drawLine(dNode.getIndex() + "-" + i, 2, dNode.getBoundsInLocal().getMaxX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMinX(), nOut.getBoundsInLocal().getMinY() + 5, batch);
                 }
             }
         }
@@ -144,29 +235,36 @@ import java.util.Set;
         DrawNode dN;
         Set<DummyNode> visited = new HashSet<>();
         for (int i = dummyNodes.size() - 1; i >= 0; i--) {
+            if (isStale(request)) {
+                return;
+            }
             current = dummyNodes.get(i);
             if (!visited.contains(current)) {
                 visited.add(current);
                 if (!visited.contains(current.prevInEdge())) {
                     dN = nodeGraph.getDrawNode(current.getFrom());
                     if (dN != null) {
-                        drawLine(current.getFrom() + "-" + current.getTo(), 2, dN.getBoundsInLocal().getMaxX(), dN.getBoundsInLocal().getMinY() + 5, current.getX(), current.getY() + 5);
+                        drawLine(current.getFrom() + "-" + current.getTo(), 2, dN.getBoundsInLocal().getMaxX(), dN.getBoundsInLocal().getMinY() + 5, current.getX(), current.getY() + 5, batch);
                     }
                 }
-                for (int j = i; j >= 0; j--) {
-                    current2 = dummyNodes.get(j);
-                    if (current.nextInEdge(current2)) {
-                        drawLine(current.getFrom() + "-" + current.getTo(), 2, current.getX(), current.getY() + 5, current2.getX(), current2.getY() + 5);
+                ArrayList<Integer> next = positions.get(new DummyNode(current.getId() + 1, current.getFrom(), current.getTo(), 0, 0));
+                if (next != null) {
+                    for (int j = next.size() - 1; j >= 0; j--) {
+                        if (next.get(j) <= i) {
+                            current2 = dummyNodes.get(next.get(j));
+                            drawLine(current.getFrom() + "-" + current.getTo(), 2, current.getX(), current.getY() + 5, current2.getX(), current2.getY() + 5, batch);
+                        }
                     }
                 }
                 if (current.getId() == -1) {
                     dN = nodeGraph.getDrawNode(current.getTo());
                     if (dN != null) {
-                        drawLine(current.getFrom() + "-" + current.getTo(), 2, current.getX(), current.getY() + 5, dN.getBoundsInLocal().getMinX(), dN.getBoundsInLocal().getMinY() + 5);
+                        drawLine(current.getFrom() + "-" + current.getTo(), 2, current.getX(), current.getY() + 5, dN.getBoundsInLocal().getMinX(), dN.getBoundsInLocal().getMinY() + 5, batch);
                     }
                 }
             }
         }
+        show(batch, request, drawNodes.size() > CANVAS_THRESHOLD);
     }
     /**
      * Draws new root nodes.
@@ -175,19 +273,22 @@ import java.util.Set;
      */
     private void drawUpdateRoot(LinkedList<DrawNode> newNodes, LinkedList<DummyNode> newDummies) {
         NodeGraph nodeGraph = NodeGraph.getCurrentInstance();
-        ArrayList<Node> nodes = nodeGraph.getNodes();
+        ArrayList<javafx.scene.Node> batch = new ArrayList<>();
         for (DrawNode dNode : newNodes) {
             dNode.setX(dNode.getX() - dNode.getWidth() / 2);
             dNode.setOnMousePressed(click);
-            this.getChildren().add(dNode);
+            batch.add(dNode);
             DrawNode nOut;
-            for (int i : nodes.get(dNode.getIndex()).getOutgoingEdges()) {
+            int degree = nodeGraph.getOutDegree(dNode.getIndex());
+            for (int k = 0; k < degree; k++) {
+                int i = nodeGraph.getOutTarget(dNode.getIndex(), k);
                 nOut = nodeGraph.getDrawNode(i);
                 if (nOut != null && nOut.getBoundsInLocal().getMinX() - dNode.getBoundsInLocal().getMaxX() <= 100) {
-                    drawLine(dNode.getIndex() + "-" + i, 2, dNode.getBoundsInLocal().getMaxX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMinX(), nOut.getBoundsInLocal().getMinY() + 5);
+                    drawLine(dNode.getIndex() + "-" + i, 2, dNode.getBoundsInLocal().getMaxX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMinX(), nOut.getBoundsInLocal().getMinY() + 5, batch);
                 }
             }
         }
+        addShapes(batch);
     }
 
     /**
@@ -197,29 +298,36 @@ import java.util.Set;
      */
     private void drawUpdateLeaf(LinkedList<DrawNode> newNodes, LinkedList<DummyNode> newDummies) {
         NodeGraph nodeGraph = NodeGraph.getCurrentInstance();
-        ArrayList<Node> nodes = nodeGraph.getNodes();
+        ArrayList<javafx.scene.Node> batch = new ArrayList<>();
         for (DrawNode dNode : newNodes) {
             dNode.setX(dNode.getX() - dNode.getWidth() / 2);
             dNode.setOnMousePressed(click);
-            this.getChildren().add(dNode);
+            batch.add(dNode);
             DrawNode nOut;
-            for (int i : nodes.get(dNode.getIndex()).getIncomingEdges()) {
+            int degree = nodeGraph.getInDegree(dNode.getIndex());
+            for (int k = 0; k < degree; k++) {
+                int i = nodeGraph.getInTarget(dNode.getIndex(), k);
                 nOut = nodeGraph.getDrawNode(i);
                 if (nOut != null && nOut.getBoundsInLocal().getMinX() - dNode.getBoundsInLocal().getMaxX() <= 100) {
-                    drawLine(i + "-" + dNode.getIndex(), 2, dNode.getBoundsInLocal().getMinX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMaxX(), nOut.getBoundsInLocal().getMinY() + 5);
+                    drawLine(i + "-" + dNode.getIndex(), 2, dNode.getBoundsInLocal().getMinX(), dNode.getBoundsInLocal().getMinY() + 5, nOut.getBoundsInLocal().getMaxX(), nOut.getBoundsInLocal().getMinY() + 5, batch);
                 }
             }
         }
+        addShapes(batch);
     }
 
     /**
      * Zooms out on the scene.
+     * Zooming is ignored while the graph is loading, as the drawing is replaced once it has been parsed.
      * @param transX x-coordinate of cursor
      * @param transY y-coordinate of cursor
      */
     public void zoomOut(double transX, double transY) {
+        if (NodeGraph.getCurrentInstance().isLoading()) {
+            return;
+        }
         LinkedList<DrawNode> drawNodes = NodeGraph.getCurrentInstance().getDrawNodes();
-        if (drawNodes.size() < NodeGraph.getCurrentInstance().getNodes().size()) {
+        if (drawNodes.size() < NodeGraph.getCurrentInstance().getSize()) {
             Pair<LinkedList<DrawNode>, LinkedList<DummyNode>> pLeafOut = NodeGraph.getCurrentInstance().addAtLeaf();
             Pair<LinkedList<DrawNode>, LinkedList<DummyNode>> pRootOut = NodeGraph.getCurrentInstance().addAtRoot();
             drawUpdateLeaf(pLeafOut.getKey(), pLeafOut.getValue());
@@ -227,15 +335,20 @@ import java.util.Set;
             drawNodes = NodeGraph.getCurrentInstance().getDrawNodes();
             setScaleX(getWidth() / (NodeGraph.getCurrentInstance().getDrawNodes().getFirst().getBoundsInLocal().getMaxX() - NodeGraph.getCurrentInstance().getDrawNodes().getLast().getX()));
             setTranslateX((-drawNodes.getLast().getX() + getWidth() / 2) * getScaleX() - getWidth() / 2);
+            requestViewport();
         }
     }
 
     /**
      * Zooms in on the scene.
+     * Zooming is ignored while the graph is loading, as the drawing is replaced once it has been parsed.
      * @param transX x-coordinate of cursor
      * @param transY y-coordinate of cursor
      */
     public void zoomIn(double transX, double transY) {
+        if (NodeGraph.getCurrentInstance().isLoading()) {
+            return;
+        }
         LinkedList<DrawNode> drawNodes = NodeGraph.getCurrentInstance().getDrawNodes();
         if (drawNodes.size() > 3) {
             double maxX = NodeGraph.getCurrentInstance().removeAtLeaf();
@@ -245,16 +358,66 @@ import java.util.Set;
             drawNodes = NodeGraph.getCurrentInstance().getDrawNodes();
             setScaleX(getWidth() / (drawNodes.getFirst().getBoundsInLocal().getMaxX() + 200 - drawNodes.getLast().getX()));
             setTranslateX((-drawNodes.getLast().getX() + getWidth() / 2) * getScaleX() - getWidth() / 2);
+            requestViewport();
+        }
+    }
+
+    /**
+     * Repaints the canvas for the viewport once the current changes to the view have been made.
+     * Several changes in a row, like the scale and translation of a zoom, lead to one repaint.
+     */
+    private void requestViewport() {
+        if (!viewportPending) {
+            viewportPending = true;
+            Platform.runLater(() -> {
+                viewportPending = false;
+                cull();
+            });
         }
     }
 
+    /**
+     * Hides the shapes outside of the viewport and shows the shapes inside it.
+     * Only the shapes that were visible before and the shapes in the viewport are touched.
+     * A canvas is moved to the viewport and repainted at the resolution of the screen.
+     */
+    private void cull() {
+        if (getScaleX() <= 0 || getScaleY() <= 0) {
+            return;
+        }
+        double pivot = getWidth() / 2;
+        double minX = pivot + (-getTranslateX() - pivot) / getScaleX() - CELL_SIZE;
+        double maxX = pivot + (getWidth() - getTranslateX() - pivot) / getScaleX() + CELL_SIZE;
+        if (canvas != null) {
+            double pivotY = getHeight() / 2;
+            double minY = pivotY + (-getTranslateY() - pivotY) / getScaleY();
+            double maxY = pivotY + (getHeight() - getTranslateY() - pivotY) / getScaleY();
+            canvas.setViewport(minX, minY, maxX, maxY, getScaleX(), getScaleY());
+            return;
+        }
+        Set<javafx.scene.Node> inView = Collections.newSetFromMap(new IdentityHashMap<>());
+        inView.addAll(index.query(minX, -Double.MAX_VALUE, maxX, Double.MAX_VALUE));
+        for (javafx.scene.Node shape : visible) {
+            if (!inView.contains(shape)) {
+                shape.setVisible(false);
+            }
+        }
+        for (javafx.scene.Node shape : inView) {
+            if (!visible.contains(shape)) {
+                shape.setVisible(true);
+            }
+        }
+        visible = inView;
+    }
+
     /**
      * Deletes root nodes to remove from the scene.
+     * Only the shapes left of the x-coordinate are looked up in the spatial index.
      * @param minX x-coordinate of nodes to remove.
      */
     private void removeNodesRoot(double minX) {
         ArrayList<javafx.scene.Node> remove = new ArrayList<>();
-        for (javafx.scene.Node drawElement: this.getChildren()) {
+        for (javafx.scene.Node drawElement: index.query(-Double.MAX_VALUE, -Double.MAX_VALUE, minX, Double.MAX_VALUE)) {
             if (drawElement instanceof Rectangle) {
                 Rectangle rect = (Rectangle) drawElement;
                 if (rect.getX() < minX) {
@@ -267,16 +430,17 @@ import java.util.Set;
                 }
             }
         }
-        this.getChildren().removeAll(remove);
+        removeShapes(remove);
     }
 
     /**
      * Deletes leaf nodes to remove from the scene.
+     * Only the shapes right of the x-coordinate are looked up in the spatial index.
      * @param maxX x-coordinate of nodes to remove.
      */
     private void removeNodesLeaf(double maxX) {
         ArrayList<javafx.scene.Node> remove = new ArrayList<>();
-        for (javafx.scene.Node drawElement: this.getChildren()) {
+        for (javafx.scene.Node drawElement: index.query(maxX, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE)) {
             if (drawElement instanceof Rectangle) {
                 Rectangle rect = (Rectangle) drawElement;
                 if (rect.getX() > maxX) {
@@ -289,7 +453,7 @@ import java.util.Set;
                 }
             }
         }
-        this.getChildren().removeAll(remove);
+        removeShapes(remove);
     }
 
     /**
@@ -300,8 +464,9 @@ import java.util.Set;
      * @param startY The starting Y coordinate of the line.
      * @param endX The ending X coordinate of the line.
      * @param endY The ending Y coordinate of the line.
+     * @param batch The shapes the line is added to.
      */
-    private void drawLine(String id, double width, double startX, double startY, double endX, double endY) {
+    private void drawLine(String id, double width, double startX, double startY, double endX, double endY, List<javafx.scene.Node> batch) {
         Line l = new Line();
         l.setId(id);
         l.setStrokeWidth(width);
@@ -310,7 +475,83 @@ import java.util.Set;
         l.setEndX(endX);
         l.setEndY(endY);
         l.setOnMousePressed(click);
-        Platform.runLater(() -> this.getChildren().add(l));
+        batch.add(l);
+    }
+
+    /**
+     * Replaces the shapes in the scene on the JavaFX thread, unless a newer drawing has started by then.
+     * All shapes of a drawing are applied at once, so the scene is laid out once per drawing.
+     * @param batch The shapes of the drawing.
+     * @param request The generation of the drawing.
+     * @param paint True iff the shapes are painted on a canvas.
+     */
+    private void show(List<javafx.scene.Node> batch, long request, boolean paint) {
+        Platform.runLater(() -> {
+            if (request == generation.get()) {
+                if (paint) {
+                    canvas = new GraphCanvas(batch);
+                    canvas.setOnMousePressed(canvasClick);
+                    index = canvas.getIndex();
+                    this.getChildren().setAll(canvas);
+                    cull();
+                } else {
+                    canvas = null;
+                    index = new SpatialIndex<>(CELL_SIZE);
+                    visible.clear();
+                    this.getChildren().clear();
+                    addShapes(batch);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds shapes to the current drawing.
+     * @param batch The shapes to add.
+     */
+    private void addShapes(List<javafx.scene.Node> batch) {
+        if (canvas != null) {
+            canvas.addAll(batch);
+        } else {
+            for (javafx.scene.Node shape : batch) {
+                GraphCanvas.insert(index, shape);
+            }
+            visible.addAll(batch);
+            this.getChildren().addAll(batch);
+        }
+    }
+
+    /**
+     * Removes shapes from the current drawing.
+     * @param remove The shapes to remove.
+     */
+    private void removeShapes(List<javafx.scene.Node> remove) {
+        if (canvas != null) {
+            canvas.removeAll(remove);
+        } else {
+            for (javafx.scene.Node shape : remove) {
+                index.remove(shape);
+                visible.remove(shape);
+            }
+            this.getChildren().removeAll(new HashSet<>(remove));
+        }
+    }
+
+    /**
+     * Checks whether a drawing has been superseded by a newer one.
+     * @param request The generation of the drawing.
+     * @return true iff the drawing should stop.
+     */
+    private boolean isStale(long request) {
+        return request != generation.get() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Getter for the generation of the last drawing.
+     * @return The number of drawings started.
+     */
+    public long getGeneration() {
+        return generation.get();
     }
     /**
      * Switches event handler to center queries.
@@ -2,6 +2,7 @@ package services;
 
 import filesystem.FileSystem;
 import logging.LoggerFactory;
+import parsing.Parser;
 import screens.Backlog;
 import screens.FXElementsFactory;
 import screens.FileSelector;
@@ -60,6 +61,11 @@ public class ServiceLocator {
      */
     private FileSystem fileSystem;
 
+    /**
+     * Scheduler running the background tasks.
+     */
+    private TaskScheduler taskScheduler;
+
     /**
      * Constructor.
      */
@@ -76,6 +82,8 @@ public class ServiceLocator {
         Backlog.register(this);
         LoggerFactory.register(this);
         FileSelector.register(this);
+        TaskScheduler.register(this);
+        Parser.register(this);
 
         GraphScene.register(this);
         InteractionScene.register(this);
@@ -162,6 +170,15 @@ public class ServiceLocator {
         fileSystem = fS;
     }
 
+    /**
+     * Sets the scheduler that runs the background tasks.
+     * @param tS TaskScheduler object.
+     */
+    public void setTaskScheduler(TaskScheduler tS) {
+        assert tS != null;
+        taskScheduler = tS;
+    }
+
     /**
      * Gets the backlog.
      * @return Backlog object.
@@ -234,4 +251,12 @@ public class ServiceLocator {
         return fileSystem;
     }
 
+    /**
+     * Gets the task scheduler.
+     * @return Scheduler running the background tasks.
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
 }
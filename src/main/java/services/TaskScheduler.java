@@ -0,0 +1,224 @@
+package services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the background tasks of the application in a fixed set of named pools.
+ * Every pool has a bounded number of threads and a bounded queue, so rapid user actions can't pile up threads.
+ * A background thread that submits more tasks than a pool can hold runs the task itself.
+ * Pools fed from the JavaFX thread cancel their oldest waiting task instead,
+ * so the user interface never runs a background task.
+ * Tasks submitted under a key replace the task submitted before under the same key.
+ */
+public final class TaskScheduler {
+    /**
+     * Pool in which files are parsed, one file at a time.
+     */
+    public static final String PARSER = "parser";
+
+    /**
+     * Pool in which the chunks of a file are parsed.
+     */
+    public static final String WORKERS = "workers";
+
+    /**
+     * Pool in which caches are written, one cache at a time.
+     */
+    public static final String CACHE = "cache";
+
+    /**
+     * Pool in which the graph is laid out, one drawing at a time.
+     */
+    public static final String DRAWING = "drawing";
+
+    /**
+     * Pool for small tasks that wait for other tasks.
+     */
+    public static final String HELPER = "helper";
+
+    /**
+     * Maximal number of tasks waiting in a pool.
+     */
+    private static final int QUEUE_SIZE = 64;
+
+    /**
+     * Instance of this singleton class.
+     */
+    private static TaskScheduler instance = null;
+
+    /**
+     * The pools by name.
+     */
+    private final Map<String, ThreadPoolExecutor> pools;
+
+    /**
+     * The last task submitted under every key.
+     */
+    private final Map<String, Future<?>> latest;
+
+    /**
+     * Constructor of the scheduler.
+     */
+    private TaskScheduler() {
+        pools = new HashMap<>();
+        latest = new HashMap<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        addPool(PARSER, 1, TaskScheduler::cancelOldest);
+        addPool(WORKERS, threads, new ThreadPoolExecutor.CallerRunsPolicy());
+        addPool(CACHE, 1, new ThreadPoolExecutor.CallerRunsPolicy());
+        addPool(DRAWING, 1, TaskScheduler::cancelOldest);
+        addPool(HELPER, 2, TaskScheduler::cancelOldest);
+    }
+
+    /**
+     * Getter for the singleton scheduler.
+     * @return The singleton scheduler.
+     */
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Register a reference of this object in the service locator.
+     * @param sL container of references to other services
+     */
+    public static void register(ServiceLocator sL) {
+        if (sL == null) {
+            throw new IllegalArgumentException("The service locator can not be null");
+        }
+        sL.setTaskScheduler(getInstance());
+    }
+
+    /**
+     * Creates a pool of daemon threads.
+     * @param name the name of the pool.
+     * @param threads the number of threads in the pool.
+     * @param rejected what to do with a task when the queue of the pool is full.
+     */
+    private void addPool(final String name, int threads, RejectedExecutionHandler rejected) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), task -> {
+                    Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, rejected);
+        pool.allowCoreThreadTimeOut(true);
+        pools.put(name, pool);
+    }
+
+    /**
+     * Makes room for a task in a full pool by cancelling the task that has been waiting the longest.
+     * The cancelled task completes its future, so nothing waits on a task that will never run.
+     * @param task the task that was rejected.
+     * @param pool the pool that rejected the task.
+     */
+    private static void cancelOldest(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            return;
+        }
+        Runnable oldest = pool.getQueue().poll();
+        if (oldest instanceof Future) {
+            ((Future<?>) oldest).cancel(false);
+        }
+        pool.execute(task);
+    }
+
+    /**
+     * Gets a pool by its name.
+     * @param pool the name of the pool.
+     * @return the pool.
+     */
+    private ThreadPoolExecutor getPool(String pool) {
+        ThreadPoolExecutor result = pools.get(pool);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown pool " + pool);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a task in a pool.
+     * @param pool the name of the pool.
+     * @param task the task to run.
+     * @param <T> the type of the result of the task.
+     * @return the future result of the task.
+     */
+    public <T> Future<T> submit(String pool, Callable<T> task) {
+        return getPool(pool).submit(task);
+    }
+
+    /**
+     * Runs a task in a pool.
+     * @param pool the name of the pool.
+     * @param task the task to run.
+     * @return the future that completes when the task is done.
+     */
+    public Future<?> submit(String pool, Runnable task) {
+        return getPool(pool).submit(task);
+    }
+
+    /**
+     * Runs a task in a pool and cancels the task submitted before under the same key.
+     * A running task that is cancelled is interrupted, the new task starts once a thread of the pool is free.
+     * @param pool the name of the pool.
+     * @param key the key of the task.
+     * @param task the task to run.
+     * @param <T> the type of the result of the task.
+     * @return the future result of the task.
+     */
+    public synchronized <T> Future<T> submitLatest(String pool, String key, Callable<T> task) {
+        cancel(key);
+        Future<T> result = submit(pool, task);
+        latest.put(key, result);
+        return result;
+    }
+
+    /**
+     * Runs a task in a pool and cancels the task submitted before under the same key.
+     * A running task that is cancelled is interrupted, the new task starts once a thread of the pool is free.
+     * @param pool the name of the pool.
+     * @param key the key of the task.
+     * @param task the task to run.
+     * @return the future that completes when the task is done.
+     */
+    public synchronized Future<?> submitLatest(String pool, String key, Runnable task) {
+        cancel(key);
+        Future<?> result = submit(pool, task);
+        latest.put(key, result);
+        return result;
+    }
+
+    /**
+     * Cancels the last task submitted under a key and removes it from the queue of its pool.
+     * @param key the key of the task.
+     */
+    public synchronized void cancel(String key) {
+        Future<?> previous = latest.remove(key);
+        if (previous != null && previous.cancel(true)) {
+            for (ThreadPoolExecutor pool : pools.values()) {
+                pool.purge();
+            }
+        }
+    }
+
+    /**
+     * Getter for the last task submitted under a key.
+     * @param key the key of the task.
+     * @return the future of the task, null if no task has been submitted under the key.
+     */
+    public synchronized Future<?> getLatest(String key) {
+        return latest.get(key);
+    }
+}
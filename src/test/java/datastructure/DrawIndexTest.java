@@ -0,0 +1,110 @@
+package datastructure;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for DrawIndex.
+ */
+public class DrawIndexTest {
+    /**
+     * The index used to test.
+     */
+    private DrawIndex index;
+
+    /**
+     * Before each test we create an empty index.
+     */
+    @Before
+    public void setUp() {
+        index = new DrawIndex(0);
+    }
+
+    /**
+     * Check if DrawNodes are found by id while the index grows.
+     */
+    @Test
+    public void add() {
+        DrawNode[] dNodes = new DrawNode[100];
+        for (int i = 0; i < dNodes.length; i++) {
+            dNodes[i] = new DrawNode(i * 16);
+            index.add(dNodes[i], false);
+        }
+        assertEquals(100, index.size());
+        for (int i = 0; i < dNodes.length; i++) {
+            assertEquals(dNodes[i], index.first(i * 16));
+        }
+        assertNull(index.first(1));
+        assertEquals(-1, index.head(1));
+    }
+
+    /**
+     * Check if duplicates of a node are chained in the order they are added.
+     */
+    @Test
+    public void duplicates() {
+        DrawNode a = new DrawNode(3);
+        DrawNode b = new DrawNode(3);
+        DrawNode c = new DrawNode(3);
+        index.add(a, false);
+        index.add(b, false);
+        index.add(c, true);
+        assertEquals(1, index.size());
+        int entry = index.head(3);
+        assertEquals(c, index.get(entry));
+        entry = index.next(entry);
+        assertEquals(a, index.get(entry));
+        entry = index.next(entry);
+        assertEquals(b, index.get(entry));
+        assertEquals(-1, index.next(entry));
+    }
+
+    /**
+     * Check if a DrawNode is removed by identity and the id only when no duplicates are left.
+     */
+    @Test
+    public void remove() {
+        DrawNode a = new DrawNode(3);
+        DrawNode b = new DrawNode(3);
+        index.add(a, false);
+        index.add(b, false);
+        assertFalse(index.remove(new DrawNode(3)));
+        assertTrue(index.remove(a));
+        assertEquals(b, index.first(3));
+        assertTrue(index.remove(b));
+        assertFalse(index.remove(b));
+        assertEquals(0, index.size());
+        assertNull(index.first(3));
+    }
+
+    /**
+     * Check if ids are still found after removing ids that collided with them.
+     */
+    @Test
+    public void removeCollisions() {
+        DrawNode[] dNodes = new DrawNode[1000];
+        for (int i = 0; i < dNodes.length; i++) {
+            dNodes[i] = new DrawNode(i);
+            index.add(dNodes[i], false);
+        }
+        for (int i = 0; i < dNodes.length; i += 2) {
+            assertTrue(index.remove(dNodes[i]));
+        }
+        assertEquals(500, index.size());
+        for (int i = 0; i < dNodes.length; i++) {
+            if (i % 2 == 0) {
+                assertNull(index.first(i));
+            } else {
+                assertEquals(dNodes[i], index.first(i));
+            }
+        }
+        DrawNode reused = new DrawNode(0);
+        index.add(reused, false);
+        assertEquals(reused, index.first(0));
+    }
+}
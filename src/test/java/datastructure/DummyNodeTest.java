@@ -10,6 +10,7 @@ import org.junit.After;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -56,10 +57,21 @@ public class DummyNodeTest {
     }
 
     @Test
-    public void getAbsId() {
-        assertEquals(Double.parseDouble(Integer.toString(id) + Integer.toString(from) +Integer.toString(to)), dummyNode.getAbsId(), 0);
-        DummyNode node = new DummyNode(1,2,3,4,5);
-        assertEquals(123, node.getAbsId(), 0);
+    public void getKey() {
+        assertEquals(DummyNode.edgeKey(from, to), dummyNode.getKey());
+        assertTrue(dummyNode.getKey() < 0);
+        assertEquals(from, DummyNode.keyFrom(dummyNode.getKey()));
+        assertEquals(to, DummyNode.keyTo(dummyNode.getKey()));
+        assertEquals(new DummyNode(-2, from, to, 0, 0).getKey(), dummyNode.getKey());
+    }
+
+    @Test
+    public void edgeKey() {
+        assertNotEquals(DummyNode.edgeKey(1, 23), DummyNode.edgeKey(12, 3));
+        assertEquals(-1, DummyNode.keyFrom(DummyNode.edgeKey(-1, Integer.MAX_VALUE - 1)));
+        assertEquals(Integer.MAX_VALUE - 1, DummyNode.keyTo(DummyNode.edgeKey(-1, Integer.MAX_VALUE - 1)));
+        assertEquals(Integer.MAX_VALUE - 1, DummyNode.keyFrom(DummyNode.edgeKey(Integer.MAX_VALUE - 1, -1)));
+        assertEquals(-1, DummyNode.keyTo(DummyNode.edgeKey(Integer.MAX_VALUE - 1, -1)));
     }
     @Test
     public void getFrom() {
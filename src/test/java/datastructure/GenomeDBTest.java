@@ -0,0 +1,89 @@
+package datastructure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for GenomeDB.
+ */
+public class GenomeDBTest {
+    /**
+     * The file containing the index.
+     */
+    private File file;
+
+    /**
+     * The index used to test.
+     */
+    private GenomeDB genomeDB;
+
+    /**
+     * Before each test we write an index of 130 nodes and 70 genomes,
+     * node i contains genome i % 70 and genome 69.
+     * @throws IOException when the index can't be written.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("genomes", ".bin");
+        String[] names = new String[70];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "G" + i;
+        }
+        GenomeDBWriter writer = new GenomeDBWriter(file.getAbsolutePath(), names);
+        for (int i = 0; i < 130; i++) {
+            writer.addNode(new int[]{i % 70, 69, 70, -1}, 4);
+        }
+        writer.close();
+        genomeDB = new GenomeDB(file.getAbsolutePath());
+    }
+
+    /**
+     * After each test we delete the index.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Check if the names of the genomes are stored.
+     */
+    @Test
+    public void getGenomeName() {
+        assertEquals(70, genomeDB.getGenomeCount());
+        assertEquals("G0", genomeDB.getGenomeName(0));
+        assertEquals("G69", genomeDB.getGenomeName(69));
+    }
+
+    /**
+     * Check if the genomes of a node are found, genomes out of range are ignored.
+     */
+    @Test
+    public void getGenomes() {
+        assertArrayEquals(new int[]{3, 69}, genomeDB.getGenomes(73));
+        assertArrayEquals(new int[]{69}, genomeDB.getGenomes(69));
+        assertArrayEquals(new int[0], genomeDB.getGenomes(130));
+        assertTrue(genomeDB.contains(73, 3));
+        assertFalse(genomeDB.contains(73, 4));
+        assertFalse(genomeDB.contains(73, 70));
+    }
+
+    /**
+     * Check if the nodes of a genome are found.
+     */
+    @Test
+    public void getNodes() {
+        assertArrayEquals(new int[]{5, 75}, genomeDB.getNodes(5));
+        assertEquals(130, genomeDB.getNodes(69).length);
+        assertArrayEquals(new int[0], genomeDB.getNodes(70));
+    }
+}
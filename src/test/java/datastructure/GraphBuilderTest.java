@@ -0,0 +1,120 @@
+package datastructure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for GraphBuilder.
+ */
+public class GraphBuilderTest {
+    /**
+     * The builder used to test.
+     */
+    private GraphBuilder builder;
+
+    /**
+     * Before each test we create a new builder.
+     */
+    @Before
+    public void setUp() {
+        builder = new GraphBuilder();
+    }
+
+    /**
+     * After each test we set the builder back to null.
+     */
+    @After
+    public void tearDown() {
+        builder = null;
+    }
+
+    /**
+     * Check if nodes get their scaled length and edges grow the graph.
+     */
+    @Test
+    public void addNode() {
+        builder.addNode(0, 400);
+        builder.addEdge(0, 2);
+        assertEquals(3, builder.getSize());
+        GraphStore store = builder.build();
+        assertEquals(20, store.getLength(0));
+        assertEquals(0, store.getLength(1));
+        assertEquals(0, store.getLength(2));
+    }
+
+    /**
+     * Check if the edges of every node keep the order in which they were added.
+     */
+    @Test
+    public void build() {
+        builder.addNode(0, 1);
+        builder.addNode(1, 1);
+        builder.addNode(2, 1);
+        builder.addEdge(0, 2);
+        builder.addEdge(1, 2);
+        builder.addEdge(0, 1);
+        GraphStore store = builder.build();
+        assertArrayEquals(new int[]{2, 1}, store.getOutgoingEdges(0));
+        assertArrayEquals(new int[]{2}, store.getOutgoingEdges(1));
+        assertArrayEquals(new int[0], store.getOutgoingEdges(2));
+        assertArrayEquals(new int[]{0}, store.getIncomingEdges(1));
+        assertArrayEquals(new int[]{0, 1}, store.getIncomingEdges(2));
+    }
+
+    /**
+     * Check if a hub with many edges is built correctly.
+     */
+    @Test
+    public void buildHub() {
+        int degree = 5000;
+        for (int i = 1; i <= degree; i++) {
+            builder.addEdge(0, i);
+        }
+        GraphStore store = builder.build();
+        assertEquals(degree + 1, store.getSize());
+        int[] out = store.getOutgoingEdges(0);
+        assertEquals(degree, out.length);
+        for (int i = 0; i < degree; i++) {
+            assertEquals(i + 1, out[i]);
+        }
+        assertArrayEquals(new int[]{0}, store.getIncomingEdges(degree));
+    }
+
+    /**
+     * Check if a presized builder grows past its expected size.
+     */
+    @Test
+    public void presized() {
+        builder = new GraphBuilder(2);
+        for (int i = 0; i < 100; i++) {
+            builder.addNode(i, 100);
+            builder.addEdge(i, i + 1);
+        }
+        GraphStore store = builder.build();
+        assertEquals(101, store.getSize());
+        assertEquals(10, store.getLength(99));
+        assertArrayEquals(new int[]{99}, store.getIncomingEdges(100));
+    }
+
+    /**
+     * Check if a snapshot only contains the first nodes and the builder can still be extended.
+     */
+    @Test
+    public void snapshot() {
+        builder.addNode(0, 1);
+        builder.addNode(1, 1);
+        builder.addEdge(0, 1);
+        builder.addEdge(1, 2);
+        GraphStore store = builder.snapshot(2);
+        assertEquals(2, store.getSize());
+        assertArrayEquals(new int[]{1}, store.getOutgoingEdges(0));
+        assertArrayEquals(new int[0], store.getOutgoingEdges(1));
+        builder.addNode(2, 1);
+        assertEquals(3, builder.build().getSize());
+        assertEquals(3, builder.snapshot(10).getSize());
+    }
+}
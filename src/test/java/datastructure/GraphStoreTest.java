@@ -0,0 +1,99 @@
+package datastructure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for GraphStore.
+ */
+public class GraphStoreTest {
+    /**
+     * The store used to test, 0 -> 1, 0 -> 2, 1 -> 2.
+     */
+    private GraphStore store;
+
+    /**
+     * Before each test we create a small store.
+     */
+    @Before
+    public void setUp() {
+        store = new GraphStore(new int[]{10, 20, 30},
+                new int[]{0, 2, 3, 3}, new int[]{1, 2, 2},
+                new int[]{0, 0, 1, 3}, new int[]{0, 0, 1});
+    }
+
+    /**
+     * After each test we set the store back to null.
+     */
+    @After
+    public void tearDown() {
+        store = null;
+    }
+
+    /**
+     * Check the size and lengths of the store.
+     */
+    @Test
+    public void getLength() {
+        assertEquals(3, store.getSize());
+        assertEquals(20, store.getLength(1));
+    }
+
+    /**
+     * Check if the edges of a node are read from the right range.
+     */
+    @Test
+    public void getEdges() {
+        assertArrayEquals(new int[]{1, 2}, store.getOutgoingEdges(0));
+        assertArrayEquals(new int[0], store.getOutgoingEdges(2));
+        assertArrayEquals(new int[0], store.getIncomingEdges(0));
+        assertArrayEquals(new int[]{0, 1}, store.getIncomingEdges(2));
+    }
+
+    /**
+     * Check if the edges of a node can be read one by one.
+     */
+    @Test
+    public void getTargets() {
+        assertEquals(2, store.getOutDegree(0));
+        assertEquals(2, store.getOutTarget(0, 1));
+        assertEquals(0, store.getOutDegree(2));
+        assertEquals(0, store.getInDegree(0));
+        assertEquals(2, store.getInDegree(2));
+        assertEquals(1, store.getInTarget(2, 1));
+    }
+
+    /**
+     * Check if a node view contains the length and edges of the node.
+     */
+    @Test
+    public void getNode() {
+        Node node = store.getNode(1);
+        assertEquals(20, node.getLength());
+        assertArrayEquals(new int[]{2}, node.getOutgoingEdges());
+        assertArrayEquals(new int[]{0}, node.getIncomingEdges());
+    }
+
+    /**
+     * Check if a store built from nodes has the same topology.
+     */
+    @Test
+    public void fromNodes() {
+        ArrayList<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            nodes.add(store.getNode(i));
+        }
+        GraphStore copy = GraphStore.fromNodes(nodes);
+        assertArrayEquals(store.getLengths(), copy.getLengths());
+        assertArrayEquals(store.getOutOffsets(), copy.getOutOffsets());
+        assertArrayEquals(store.getOutTargets(), copy.getOutTargets());
+        assertArrayEquals(store.getInOffsets(), copy.getInOffsets());
+        assertArrayEquals(store.getInTargets(), copy.getInTargets());
+    }
+}
@@ -0,0 +1,62 @@
+package datastructure;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for KeyList.
+ */
+public class KeyListTest {
+    /**
+     * The list used to test.
+     */
+    private KeyList list;
+
+    /**
+     * Before each test we create an empty list.
+     */
+    @Before
+    public void setUp() {
+        list = new KeyList();
+    }
+
+    /**
+     * Check if keys are kept in order while the list grows.
+     */
+    @Test
+    public void add() {
+        for (int i = 0; i < 20; i++) {
+            list.add(i - 10);
+        }
+        assertEquals(20, list.size());
+        assertEquals(-10, list.get(0));
+        assertEquals(9, list.get(19));
+    }
+
+    /**
+     * Check if node ids and edge keys are told apart.
+     */
+    @Test
+    public void contains() {
+        list.add(5);
+        list.add(DummyNode.edgeKey(0, 5));
+        assertTrue(list.contains(5));
+        assertTrue(list.contains(DummyNode.edgeKey(0, 5)));
+        assertFalse(list.contains(DummyNode.edgeKey(5, 0)));
+    }
+
+    /**
+     * Check if a cleared list is empty.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void clear() {
+        list.add(1);
+        list.clear();
+        assertEquals(0, list.size());
+        list.get(0);
+    }
+}
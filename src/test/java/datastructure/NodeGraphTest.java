@@ -9,11 +9,13 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
 import java.util.Random;
 import java.util.TreeSet;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -116,7 +118,7 @@ public class NodeGraphTest {
     public void defaultConstructor() {
         tearDown();
         nodeGraph = new NodeGraph();
-        assertTrue(nodeGraph.getNodes() != null);
+        assertEquals(0, nodeGraph.getSize());
         assertTrue(nodeGraph.getDrawNodes() != null);
         assertTrue(nodeGraph.getDummyNodes() != null);
     }
@@ -153,7 +155,7 @@ public class NodeGraphTest {
         nodeGraph.addEdge(3, 2);
         nodeGraph.addEdge(4, 5);
 
-        assertEquals(6, nodeGraph.getNodes().size());
+        assertEquals(6, nodeGraph.getSize());
         verify(node, times(1)).addOutgoingEdge(1);
         verify(node, never()).addIncomingEdge(anyInt());
         verify(node2, never()).addOutgoingEdge(anyInt());
@@ -182,7 +184,7 @@ public class NodeGraphTest {
     public void setCurrentInstance() {
         nodeGraph.setCurrentInstance(nodeGraph);
         assertEquals(nodeGraph.getDrawNodes(), nodeGraph.getCurrentInstance().getDrawNodes());
-        assertEquals(nodeGraph.getNodes(), nodeGraph.getCurrentInstance().getNodes());
+        assertEquals(nodeGraph.getSize(), nodeGraph.getCurrentInstance().getSize());
         assertEquals(nodeGraph.getSegment(0), nodeGraph.getCurrentInstance().getSegment(0));
     }
 
@@ -202,8 +204,115 @@ public class NodeGraphTest {
     }
 
     @Test
-    public void getNodes() {
-        assertEquals(nodes, nodeGraph.getNodes());
+    public void freeze() {
+        nodeGraph = new NodeGraph(new ArrayList<>(0), segmentDB, drawNodes, new LinkedList<>());
+        nodeGraph.addNode(0, new Node(1, new int[0], new int[0]));
+        nodeGraph.addNode(1, new Node(2, new int[0], new int[0]));
+        nodeGraph.addEdge(0, 1);
+        int length = nodeGraph.getLength(1);
+        nodeGraph.freeze();
+        assertEquals(2, nodeGraph.getStore().getSize());
+        assertEquals(2, nodeGraph.getSize());
+        assertEquals(length, nodeGraph.getLength(1));
+        assertArrayEquals(new int[]{1}, nodeGraph.getOutgoingEdges(0));
+        assertArrayEquals(new int[]{0}, nodeGraph.getIncomingEdges(1));
+        assertArrayEquals(new int[]{1}, nodeGraph.getNode(0).getOutgoingEdges());
+    }
+
+    @Test
+    public void setStore() {
+        GraphStore store = new GraphStore(new int[]{5, 6}, new int[]{0, 1, 1}, new int[]{1}, new int[]{0, 0, 1}, new int[]{0});
+        nodeGraph.setStore(store);
+        assertEquals(store, nodeGraph.getStore());
+        assertEquals(2, nodeGraph.getSize());
+        assertEquals(6, nodeGraph.getLength(1));
+        assertArrayEquals(new int[0], nodeGraph.getOutgoingEdges(1));
+    }
+
+    @Test
+    public void awaitNodesWhileLoading() throws InterruptedException {
+        nodeGraph = new NodeGraph();
+        GraphBuilder builder = new GraphBuilder();
+        builder.addNode(0, 1);
+        builder.addNode(1, 1);
+        builder.addEdge(0, 1);
+        builder.addEdge(1, 2);
+        nodeGraph.startLoading(builder);
+        nodeGraph.setWatermark(2);
+        assertEquals(2, nodeGraph.getWatermark());
+        GraphStore snapshot = nodeGraph.awaitNodes(2);
+        assertEquals(2, snapshot.getSize());
+        assertNull(nodeGraph.getStore());
+        assertEquals(2, nodeGraph.getSize());
+        nodeGraph.setView(snapshot);
+        assertArrayEquals(new int[]{1}, nodeGraph.getOutgoingEdges(0));
+        assertArrayEquals(new int[0], nodeGraph.getOutgoingEdges(1));
+        nodeGraph.setView(null);
+        assertTrue(nodeGraph.isLoading());
+    }
+
+    @Test
+    public void getTargets() {
+        nodeGraph = new NodeGraph();
+        nodeGraph.addNode(0, new Node(1, new int[0], new int[0]));
+        nodeGraph.addNode(1, new Node(1, new int[0], new int[0]));
+        nodeGraph.addEdge(0, 1);
+        assertEquals(1, nodeGraph.getOutDegree(0));
+        assertEquals(1, nodeGraph.getOutTarget(0, 0));
+        assertEquals(1, nodeGraph.getInDegree(1));
+        nodeGraph.freeze();
+        assertEquals(1, nodeGraph.getOutTarget(0, 0));
+        assertEquals(0, nodeGraph.getInTarget(1, 0));
+        assertEquals(0, nodeGraph.getOutDegree(1));
+    }
+
+    @Test
+    public void viewIsLocalToThread() throws InterruptedException {
+        nodeGraph = new NodeGraph();
+        GraphStore store = new GraphStore(new int[]{5, 6}, new int[]{0, 1, 1}, new int[]{1}, new int[]{0, 0, 1}, new int[]{0});
+        nodeGraph.setStore(store);
+        nodeGraph.setView(new GraphStore(new int[]{7}, new int[]{0, 0}, new int[0], new int[]{0, 0}, new int[0]));
+        assertEquals(1, nodeGraph.getSize());
+        int[] size = new int[1];
+        Thread other = new Thread(() -> {
+            size[0] = nodeGraph.getSize();
+        });
+        other.start();
+        other.join();
+        assertEquals(2, size[0]);
+        nodeGraph.setView(null);
+        assertEquals(2, nodeGraph.getSize());
+    }
+
+    @Test
+    public void awaitNodesUntilStore() throws InterruptedException {
+        nodeGraph = new NodeGraph();
+        nodeGraph.startLoading(null);
+        GraphStore store = new GraphStore(new int[]{5}, new int[]{0, 0}, new int[0], new int[]{0, 0}, new int[0]);
+        new Thread(() -> nodeGraph.setStore(store)).start();
+        assertNull(nodeGraph.awaitNodes(10));
+        assertEquals(store, nodeGraph.getStore());
+        assertEquals(1, nodeGraph.getWatermark());
+    }
+
+    @Test
+    public void awaitStore() throws InterruptedException {
+        nodeGraph = new NodeGraph();
+        nodeGraph.startLoading(new GraphBuilder());
+        GraphStore store = new GraphStore(new int[]{5}, new int[]{0, 0}, new int[0], new int[]{0, 0}, new int[0]);
+        new Thread(() -> nodeGraph.setStore(store)).start();
+        assertEquals(store, nodeGraph.awaitStore());
+        assertFalse(nodeGraph.isLoading());
+    }
+
+    @Test
+    public void awaitNodesStopped() throws InterruptedException {
+        nodeGraph = new NodeGraph();
+        nodeGraph.startLoading(new GraphBuilder());
+        nodeGraph.stopLoading();
+        assertNull(nodeGraph.awaitNodes(10));
+        assertNull(nodeGraph.awaitStore());
+        assertEquals(0, nodeGraph.getSize());
     }
 
     @Test
@@ -235,6 +344,22 @@ public class NodeGraphTest {
         assertEquals(drawNode, nodeGraph.getDrawNode(0));
     }
 
+    /**
+     * Check if the DrawNodes generated for a drawing are found by their id, 0 -> 1 -> 2.
+     */
+    @Test
+    public void getDrawNodeIndexed() {
+        ArrayList<Node> path = new ArrayList<>();
+        path.add(new Node(1, new int[]{1}, new int[0]));
+        path.add(new Node(1, new int[]{2}, new int[]{0}));
+        path.add(new Node(1, new int[0], new int[]{1}));
+        nodeGraph = new NodeGraph(path, segmentDB, new LinkedList<>(), new LinkedList<>());
+        nodeGraph.generateDrawNodes(1, 2);
+        assertEquals(1, nodeGraph.getDrawNode(1).getIndex());
+        assertTrue(nodeGraph.getDrawNodes().contains(nodeGraph.getDrawNode(0)));
+        assertNull(nodeGraph.getDrawNode(2));
+    }
+
     @Test
     public void getDummyNodes() {
         assertEquals(dummyNodes, nodeGraph.getDummyNodes());
@@ -259,73 +384,63 @@ public class NodeGraphTest {
         }
     }
 
+    /**
+     * Check if nodes come after the nodes their edges lead to, 0 -> 1 -> {2, 3} and 4 -> 0.
+     */
     @Test
     public void topoSort() {
-        when(drawNodes.get(anyInt())).thenReturn(drawNode);
-        when(drawNodes.getLast()).thenReturn(drawNode);
-        when(drawNodes.getFirst()).thenReturn(drawNode);
-        when(iterator.next()).thenReturn(drawNode);
-        when(drawNode.getIndex()).thenReturn(1);
-        when(drawNodes.isEmpty()).thenReturn(false).thenReturn(true);
-        when(node.getIncomingEdges()).thenReturn(new int[]{1});
-        when(node.getOutgoingEdges()).thenReturn(new int[]{-1});
-        try {
-            Method method = NodeGraph.class.getDeclaredMethod("topoSort", new Class[0]);
-            method.setAccessible(true);
-            method.invoke(nodeGraph);
-            verify(drawNodes, times(1)).remove(drawNode);
-        } catch (Exception e) {
-            e.printStackTrace();
-            fail();
-        }
-    }
-
-    @Test
-    public void topoSortUtil() {
-        DrawNode drawNode1 = mock(DrawNode.class);
-        DrawNode drawNode2 = mock(DrawNode.class);
-        DrawNode drawNode3 = mock(DrawNode.class);
-        when(iterator.next()).thenReturn(drawNode3).thenReturn(drawNode2).thenReturn(drawNode1).thenReturn(drawNode);
-        when(iterator.hasNext()).thenReturn(true).thenReturn(true).thenReturn(true).thenReturn(true).thenReturn(false);
-        when(drawNode.getIndex()).thenReturn(0);
-        when(drawNode1.getIndex()).thenReturn(1);
-        when(drawNode2.getIndex()).thenReturn(2);
-        when(drawNode3.getIndex()).thenReturn(3);
-        when(drawNodes.get(0)).thenReturn(drawNode);
-        when(drawNodes.get(1)).thenReturn(drawNode1);
-        when(drawNodes.get(2)).thenReturn(drawNode2);
-        when(drawNodes.get(3)).thenReturn(drawNode3);
-
         Node node1 = mock(Node.class);
         Node node2 = mock(Node.class);
         Node node3 = mock(Node.class);
-        when(nodes.get(0)).thenReturn(node);
+        Node node4 = mock(Node.class);
         when(nodes.get(1)).thenReturn(node1);
         when(nodes.get(2)).thenReturn(node2);
         when(nodes.get(3)).thenReturn(node3);
-        when(drawNodes.iterator()).thenReturn(iterator);
-
+        when(nodes.get(4)).thenReturn(node4);
         when(node.getOutgoingEdges()).thenReturn(new int[]{1});
         when(node1.getOutgoingEdges()).thenReturn(new int[]{2, 3});
         when(node2.getOutgoingEdges()).thenReturn(new int[0]);
-        when(node3.getOutgoingEdges()).thenReturn(new int[0]);
-
-        when(iterator.next()).thenReturn(drawNode);
-        Class[] classes = new Class[]{DrawNode.class, LinkedList.class};
+        when(node3.getOutgoingEdges()).thenReturn(new int[]{7});
+        when(node4.getOutgoingEdges()).thenReturn(new int[]{0});
+        LinkedList<DrawNode> unsorted = new LinkedList<>();
+        for (int id : new int[]{3, 4, 0, 2, 1}) {
+            unsorted.add(new DrawNode(id));
+        }
+        try {
+            Method method = NodeGraph.class.getDeclaredMethod("topoSort", List.class);
+            method.setAccessible(true);
+            LinkedList<DrawNode> result = (LinkedList<DrawNode>) method.invoke(nodeGraph, unsorted);
+            int[] ids = new int[result.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = result.get(i).getIndex();
+            }
+            assertArrayEquals(new int[]{3, 2, 1, 0, 4}, ids);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
 
-        when(node.getIncomingEdges()).thenReturn(new int[]{1});
-        when(node.getOutgoingEdges()).thenReturn(new int[]{-1});
-        when(drawNode.getIndex()).thenReturn(1);
+    /**
+     * Check if a long path is sorted without recursion.
+     */
+    @Test
+    public void topoSortDeep() {
+        int size = 100000;
+        ArrayList<Node> path = new ArrayList<>(size);
+        LinkedList<DrawNode> unsorted = new LinkedList<>();
+        for (int i = 0; i < size; i++) {
+            path.add(new Node(1, new int[]{i + 1}, new int[0]));
+            unsorted.add(new DrawNode(i));
+        }
+        nodeGraph = new NodeGraph(path, segmentDB, drawNodes, dummyNodes);
         try {
-            Method method = NodeGraph.class.getDeclaredMethod("topoSortUtil", classes);
+            Method method = NodeGraph.class.getDeclaredMethod("topoSort", List.class);
             method.setAccessible(true);
-            method.invoke(nodeGraph, drawNode, sorted);
-            verify(drawNodes, times(1)).remove(drawNode);
-            verify(sorted, times(1)).addLast(drawNode);
-            when(sorted.contains(any())).thenReturn(true);
-            method.invoke(nodeGraph, drawNode, sorted);
-            verify(drawNodes, times(1)).remove(drawNode);
-            verify(sorted, times(1)).addLast(drawNode);
+            LinkedList<DrawNode> result = (LinkedList<DrawNode>) method.invoke(nodeGraph, unsorted);
+            assertEquals(size, result.size());
+            assertEquals(size - 1, result.getFirst().getIndex());
+            assertEquals(0, result.getLast().getIndex());
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -383,6 +498,38 @@ public class NodeGraphTest {
         }
     }
 
+    /**
+     * Check if a node without children is placed in the rightmost layer wherever it is in the order,
+     * 0 -> 1 and 2 without edges, and if the nodes are ordered by layer afterwards.
+     */
+    @Test
+    public void assignLayersOrderIndependent() {
+        ArrayList<Node> graph = new ArrayList<>();
+        graph.add(new Node(1, new int[]{1}, new int[0]));
+        graph.add(new Node(1, new int[0], new int[]{0}));
+        graph.add(new Node(1, new int[0], new int[0]));
+        LinkedList<DrawNode> order = new LinkedList<>();
+        for (int id : new int[]{1, 0, 2}) {
+            order.add(new DrawNode(id));
+        }
+        nodeGraph = new NodeGraph(graph, segmentDB, order, dummyNodes);
+        try {
+            Method method = NodeGraph.class.getDeclaredMethod("assignLayers", new Class[0]);
+            method.setAccessible(true);
+            method.invoke(nodeGraph);
+            LinkedList<DrawNode> result = nodeGraph.getDrawNodes();
+            assertEquals(1, result.get(0).getIndex());
+            assertEquals(2, result.get(1).getIndex());
+            assertEquals(0, result.get(2).getIndex());
+            assertEquals(1100.0, result.get(0).getX(), 0);
+            assertEquals(1100.0, result.get(1).getX(), 0);
+            assertEquals(1000.0, result.get(2).getX(), 0);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void computeDummyNodes() {
         DrawNode dN1 = mock(DrawNode.class);
@@ -462,6 +609,7 @@ public class NodeGraphTest {
         drawies.add(drawNode);
         drawies.add(drawNode1);
         drawies.add(drawNode2);
+        when(node.getOutgoingEdges()).thenReturn(new int[0]);
         nodeGraph = new NodeGraph(nodes, segmentDB, drawies, dummies);
         Class[] classes = new Class[0];
         try {
@@ -479,6 +627,46 @@ public class NodeGraphTest {
         }
     }
 
+    /**
+     * Check if a layer is reordered by the mean Y of its children, 0 -> 3 and 1 -> 2.
+     * Without reordering 0 would be placed above 1 and the edges would cross.
+     */
+    @Test
+    public void verticalSpacingBarycenter() {
+        ArrayList<Node> graph = new ArrayList<>();
+        graph.add(new Node(1, new int[]{3}, new int[0]));
+        graph.add(new Node(1, new int[]{2}, new int[0]));
+        graph.add(new Node(1, new int[0], new int[]{1}));
+        graph.add(new Node(1, new int[0], new int[]{0}));
+        LinkedList<DrawNode> drawies = new LinkedList<>();
+        for (int id : new int[]{2, 3, 0, 1}) {
+            DrawNode dNode = new DrawNode(id);
+            dNode.setX(1000);
+            if (id >= 2) {
+                dNode.setX(1100);
+            }
+            drawies.add(dNode);
+        }
+        nodeGraph = new NodeGraph(graph, segmentDB, drawies, new LinkedList<>());
+        try {
+            Method method = NodeGraph.class.getDeclaredMethod("verticalSpacing", new Class[0]);
+            method.setAccessible(true);
+            method.invoke(nodeGraph);
+            assertEquals(50.0, nodeGraph.getDrawNode(2).getY(), 0);
+            assertEquals(100.0, nodeGraph.getDrawNode(3).getY(), 0);
+            assertEquals(50.0, nodeGraph.getDrawNode(1).getY(), 0);
+            assertEquals(100.0, nodeGraph.getDrawNode(0).getY(), 0);
+            int[] ids = new int[4];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = nodeGraph.getDrawNodes().get(i).getIndex();
+            }
+            assertArrayEquals(new int[]{2, 3, 1, 0}, ids);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void retrieveDrawNodes() {
         DrawNode drawNode1 = mock(DrawNode.class);
@@ -507,12 +695,12 @@ public class NodeGraphTest {
             Method method = NodeGraph.class.getDeclaredMethod("retrieveEdgeNodes", classes);
             method.setAccessible(true);
             method.invoke(nodeGraph);
-            assertTrue(nodeGraph.getLeafNodes().contains(0.0));
-            assertTrue(nodeGraph.getLeafNodes().contains(1.0));
-            assertFalse(nodeGraph.getLeafNodes().contains(2.0));
-            assertTrue(nodeGraph.getRootNodes().contains(2.0));
-            assertFalse(nodeGraph.getRootNodes().contains(1.0));
-            assertFalse(nodeGraph.getRootNodes().contains(0.0));
+            assertTrue(nodeGraph.getLeafNodes().contains(0));
+            assertTrue(nodeGraph.getLeafNodes().contains(1));
+            assertFalse(nodeGraph.getLeafNodes().contains(2));
+            assertTrue(nodeGraph.getRootNodes().contains(2));
+            assertFalse(nodeGraph.getRootNodes().contains(1));
+            assertFalse(nodeGraph.getRootNodes().contains(0));
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -531,9 +719,9 @@ public class NodeGraphTest {
         when(dummyNodes.iterator()).thenReturn(it);
         when(dummyNodes.descendingIterator()).thenReturn(rit);
         when(dummyNode.getX()).thenReturn(100);
-        when(dummyNode.getAbsId()).thenReturn(-1.0);
+        when(dummyNode.getKey()).thenReturn(-1L);
         when(dummyNode1.getX()).thenReturn(0);
-        when(dummyNode1.getAbsId()).thenReturn(-2.0);
+        when(dummyNode1.getKey()).thenReturn(-2L);
         when(it.hasNext()).thenReturn(true).thenReturn(true).thenReturn(false);
         when(it.next()).thenReturn(dummyNode).thenReturn(dummyNode1);
         when(rit.hasNext()).thenReturn(true).thenReturn(true).thenReturn(false);
@@ -546,10 +734,10 @@ public class NodeGraphTest {
             Method method = NodeGraph.class.getDeclaredMethod("retrieveEdgeNodes", classes);
             method.setAccessible(true);
             method.invoke(nodeGraph);
-            assertTrue(nodeGraph.getLeafNodes().contains(-1.0));
-            assertFalse(nodeGraph.getRootNodes().contains(-1.0));
-            assertFalse(nodeGraph.getLeafNodes().contains(-2.0));
-            assertTrue(nodeGraph.getRootNodes().contains(-2.0));
+            assertTrue(nodeGraph.getLeafNodes().contains(-1));
+            assertFalse(nodeGraph.getRootNodes().contains(-1));
+            assertFalse(nodeGraph.getLeafNodes().contains(-2));
+            assertTrue(nodeGraph.getRootNodes().contains(-2));
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -6,6 +6,8 @@ import java.io.FileWriter;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 
 /**
@@ -30,4 +32,67 @@ public class SegmentDBTest {
         file.delete();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getSegmentStore() throws Exception {
+        String workingDirectory = System.getProperty("user.dir");
+
+        String absoluteFilePath = workingDirectory + File.separator + "/src/test/resources/testSegmentDB.bin";
+        File file = new File(absoluteFilePath);
+        SegmentDBWriter writer = new SegmentDBWriter(absoluteFilePath);
+        writer.addSegment("ACGTACGTA");
+        writer.addSegment("");
+        writer.addSegment("TTNAGRC");
+        writer.addSegment("G");
+        writer.addSegment("acgt");
+        writer.close();
+        SegmentDB segments = new SegmentDB(absoluteFilePath);
+        assertEquals("G", segments.getSegment(3));
+        assertEquals("ACGTACGTA", segments.getSegment(0));
+        assertEquals("", segments.getSegment(1));
+        assertEquals("TTNAGRC", segments.getSegment(2));
+        assertEquals("acgt", segments.getSegment(4));
+        assertNull(segments.getSegment(5));
+        file.delete();
+    }
+
+    @Test
+    public void abortDeletesStore() throws Exception {
+        String workingDirectory = System.getProperty("user.dir");
+
+        String absoluteFilePath = workingDirectory + File.separator + "/src/test/resources/testSegmentDBAbort.bin";
+        File file = new File(absoluteFilePath);
+        SegmentDBWriter writer = new SegmentDBWriter(absoluteFilePath);
+        writer.addSegment("ACGT");
+        writer.abort();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void getSegmentIncompleteStore() throws Exception {
+        String workingDirectory = System.getProperty("user.dir");
+
+        String absoluteFilePath = workingDirectory + File.separator + "/src/test/resources/testSegmentDBIncomplete.bin";
+        File file = new File(absoluteFilePath);
+        SegmentDBWriter writer = new SegmentDBWriter(absoluteFilePath);
+        writer.addSegment("ACGT");
+        SegmentDB segments = new SegmentDB(absoluteFilePath);
+        assertNull(segments.getSegment(0));
+        writer.close();
+        assertEquals("ACGT", segments.getSegment(0));
+        file.delete();
+    }
+
+    @Test
+    public void getSegmentInvalidStore() throws Exception {
+        String workingDirectory = System.getProperty("user.dir");
+
+        String absoluteFilePath = workingDirectory + File.separator + "/src/test/resources/testSegmentDBInvalid.bin";
+        File file = new File(absoluteFilePath);
+        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        bw.write("A\nB");
+        bw.close();
+        SegmentDB segments = new SegmentDB(absoluteFilePath);
+        assertNull(segments.getSegment(0));
+        file.delete();
+    }
+}
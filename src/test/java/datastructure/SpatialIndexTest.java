@@ -0,0 +1,144 @@
+package datastructure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for SpatialIndex.
+ */
+public class SpatialIndexTest {
+    /**
+     * The index used to test, with cells of 10 by 10.
+     */
+    private SpatialIndex<String> index;
+
+    /**
+     * Before each test we create an index with a few items.
+     */
+    @Before
+    public void setUp() {
+        index = new SpatialIndex<>(10);
+        index.insert("a", 0, 0, 5, 5);
+        index.insert("b", 20, 0, 35, 5);
+        index.insert("c", 0, 40, 100, 40);
+    }
+
+    /**
+     * After each test we set the index back to null.
+     */
+    @After
+    public void tearDown() {
+        index = null;
+    }
+
+    /**
+     * Check if a region query finds every intersecting item once.
+     */
+    @Test
+    public void query() {
+        List<String> result = index.query(4, 0, 25, 41);
+        assertEquals(3, result.size());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(result));
+        assertEquals(Arrays.asList("b"), index.query(15, 0, 25, 10));
+        assertTrue(index.query(50, 0, 60, 30).isEmpty());
+    }
+
+    /**
+     * Check if a point query only finds items containing the point.
+     */
+    @Test
+    public void queryPoint() {
+        assertEquals(Arrays.asList("a"), index.query(5, 5));
+        assertEquals(Arrays.asList("c"), index.query(70, 40));
+        assertTrue(index.query(10, 10).isEmpty());
+    }
+
+    /**
+     * Check if a region larger than the index is answered.
+     */
+    @Test
+    public void queryLarge() {
+        assertEquals(3, index.query(-1e9, -1e9, 1e9, 1e9).size());
+    }
+
+    /**
+     * Check if an unbounded region only finds the items on its side.
+     */
+    @Test
+    public void queryUnbounded() {
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")),
+                new HashSet<>(index.query(-Double.MAX_VALUE, -Double.MAX_VALUE, 10, Double.MAX_VALUE)));
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")),
+                new HashSet<>(index.query(30, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE)));
+    }
+
+    /**
+     * Check if a strip that is unbounded vertically only checks the items in its columns.
+     */
+    @Test
+    public void queryStrip() {
+        index.clear();
+        for (int i = 0; i < 1000; i++) {
+            index.insert("n" + i, i * 10, (i % 7) * 100, i * 10 + 5, (i % 7) * 100 + 5);
+        }
+        List<String> result = index.query(100, -Double.MAX_VALUE, 125, Double.MAX_VALUE);
+        assertEquals(new HashSet<>(Arrays.asList("n10", "n11", "n12")), new HashSet<>(result));
+        assertTrue(index.getChecked() <= 3);
+    }
+
+    /**
+     * Check if items are removed from every cell.
+     */
+    @Test
+    public void remove() {
+        assertTrue(index.remove("b"));
+        assertFalse(index.remove("b"));
+        assertEquals(2, index.size());
+        assertNull(index.getBounds("b"));
+        assertTrue(index.query(20, 0, 35, 5).isEmpty());
+    }
+
+    /**
+     * Check if inserting an item again moves it.
+     */
+    @Test
+    public void move() {
+        index.insert("a", 60, 60, 50, 50);
+        assertEquals(3, index.size());
+        assertArrayEquals(new double[]{50, 50, 60, 60}, index.getBounds("a"), 0.0);
+        assertTrue(index.query(0, 0, 5, 5).isEmpty());
+        assertEquals(Arrays.asList("a"), index.query(55, 55));
+    }
+
+    /**
+     * Check if items covering many cells are found and removed.
+     */
+    @Test
+    public void oversized() {
+        index.insert("d", 0, 0, 1000, 1000);
+        assertEquals(Arrays.asList("d"), index.query(900, 900));
+        assertTrue(index.remove("d"));
+        assertTrue(index.query(900, 900).isEmpty());
+    }
+
+    /**
+     * Check if clear removes all items.
+     */
+    @Test
+    public void clear() {
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.query(0, 0, 100, 100).isEmpty());
+    }
+}
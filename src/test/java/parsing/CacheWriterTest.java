@@ -0,0 +1,92 @@
+package parsing;
+
+import datastructure.GraphStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test class for CacheWriter.
+ */
+public class CacheWriterTest {
+    /**
+     * The directory the cache is written to.
+     */
+    private File directory;
+
+    /**
+     * The store that is cached, node 0 has an edge to node 1.
+     */
+    private GraphStore store;
+
+    /**
+     * Before each test we create a directory and a store.
+     * @throws IOException when the directory can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cache").toFile();
+        store = new GraphStore(new int[]{5, 6}, new int[]{0, 1, 1}, new int[]{1}, new int[]{0, 0, 1}, new int[]{0});
+    }
+
+    /**
+     * After each test we delete the directory.
+     */
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Check if the cache is moved to its location and contains the header and the store.
+     * @throws IOException when the cache can't be written.
+     */
+    @Test
+    public void call() throws IOException {
+        String name = directory.getAbsolutePath() + File.separator + "graph";
+        CacheWriter writer = new CacheWriter(name, store, new long[]{1, 2, 3});
+        assertEquals(0.0, writer.getProgress(), 0.0);
+        Path cache = writer.call();
+        assertEquals(new File(name + "Cache.bin").toPath(), cache);
+        assertFalse(new File(name + "Cache.bin.tmp").exists());
+        assertEquals(1.0, writer.getProgress(), 0.0);
+        assertEquals(Parser.CACHE_HEADER_SIZE + 4 * 10, cache.toFile().length());
+
+        DataInputStream in = new DataInputStream(new FileInputStream(cache.toFile()));
+        assertEquals(Parser.CACHE_MAGIC, in.readInt());
+        assertEquals(Parser.CACHE_VERSION, in.readInt());
+        assertEquals(2, in.readInt());
+        assertEquals(1, in.readInt());
+        assertEquals(1, in.readInt());
+        in.skipBytes(Parser.CACHE_FINGERPRINT_OFFSET - 20);
+        assertEquals(1, in.readLong());
+        assertEquals(2, in.readLong());
+        assertEquals(3, in.readLong());
+        in.skipBytes(Parser.CACHE_HEADER_SIZE - Parser.CACHE_FINGERPRINT_OFFSET - 24);
+        assertEquals(5, in.readInt());
+        in.close();
+    }
+
+    /**
+     * Check if a cache that can't be written fails.
+     * @throws IOException when the cache can't be written.
+     */
+    @Test(expected = IOException.class)
+    public void callFails() throws IOException {
+        String name = directory.getAbsolutePath() + File.separator + "missing" + File.separator + "graph";
+        new CacheWriter(name, store, new long[]{1, 2, 3}).call();
+    }
+}
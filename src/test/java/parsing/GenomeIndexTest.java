@@ -0,0 +1,48 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for GenomeIndex.
+ */
+public class GenomeIndexTest {
+    /**
+     * The index used to test.
+     */
+    private GenomeIndex index;
+
+    /**
+     * Before each test we index a few genomes, one of them twice.
+     */
+    @Before
+    public void setUp() {
+        index = new GenomeIndex(new String[]{"ref", "alt.fasta", "ref", "\u00e4"});
+    }
+
+    /**
+     * Check if names are found in the middle of a range of bytes.
+     */
+    @Test
+    public void get() {
+        byte[] data = "ORI:Z:alt.fasta;ref;\u00e4".getBytes(StandardCharsets.UTF_8);
+        assertEquals(1, index.get(data, 6, 15));
+        assertEquals(0, index.get(data, 16, 19));
+        assertEquals(3, index.get(data, 20, data.length));
+    }
+
+    /**
+     * Check if prefixes and unknown names are not found.
+     */
+    @Test
+    public void getUnknown() {
+        byte[] data = "alt.fastb".getBytes(StandardCharsets.UTF_8);
+        assertEquals(-1, index.get(data, 0, 3));
+        assertEquals(-1, index.get(data, 0, data.length));
+        assertEquals(-1, index.get(data, 0, 0));
+    }
+}
@@ -0,0 +1,139 @@
+package parsing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for GfaChunk.
+ */
+public class GfaChunkTest {
+    /**
+     * The file containing the lines of the chunk.
+     */
+    private File file;
+
+    /**
+     * Before each test we write a small gfa body.
+     * @throws IOException when the file can't be written.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("chunk", ".gfa");
+        String body = "S\t1\tACGT\t*\tORI:Z:a;b\tCRD:Z:a\n"
+                + "L\t1\t+\t2\t-\t0M\r\n"
+                + "P\t1\t1+\t*\n"
+                + "S\t2\tNNA\t*\tORI:Z:b\r\n"
+                + "S\t3\tG\t*";
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    /**
+     * After each test we delete the file.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Check if segments and links are tokenized at the right offsets.
+     * @throws IOException when the file can't be read.
+     */
+    @Test
+    public void call() throws IOException {
+        GenomeIndex genomes = new GenomeIndex(new String[]{"a", "b"});
+        GfaChunk chunk = new GfaChunk(file, 0, file.length(), genomes).call();
+        assertEquals(3, chunk.getSegmentCount());
+
+        assertEquals(0, chunk.getSegmentId(0));
+        assertEquals("ACGT", segment(chunk, 0));
+        assertArrayEquals(new int[]{0, 1}, genomes(chunk, 0));
+        assertEquals(1, chunk.getSegmentId(1));
+        assertEquals("NNA", segment(chunk, 1));
+        assertArrayEquals(new int[]{1}, genomes(chunk, 1));
+        assertEquals(2, chunk.getSegmentId(2));
+        assertEquals("G", segment(chunk, 2));
+        assertArrayEquals(new int[0], genomes(chunk, 2));
+
+        assertEquals(1, chunk.getEdgeCount());
+        assertEquals(0, chunk.getEdgeFrom(0));
+        assertEquals(1, chunk.getEdgeTo(0));
+    }
+
+    /**
+     * Check if a chunk only parses its own range of the file.
+     * @throws IOException when the file can't be read.
+     */
+    @Test
+    public void callRange() throws IOException {
+        GfaChunk chunk = new GfaChunk(file, 29, 52, null).call();
+        assertEquals(52, chunk.getEnd());
+        assertEquals(0, chunk.getSegmentCount());
+        assertEquals(1, chunk.getEdgeCount());
+    }
+
+    /**
+     * Check if integer genomes are parsed and other genomes are skipped.
+     * @throws IOException when the file can't be read.
+     */
+    @Test
+    public void callIntegerGenomes() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("S\t1\tA\t*\tORI:Z:3;x;12\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+        GfaChunk chunk = new GfaChunk(file, 0, file.length(), null).call();
+        assertArrayEquals(new int[]{3, 12}, genomes(chunk, 0));
+    }
+
+    /**
+     * Check if segments with identical genome fields resolve to the same genomes.
+     * @throws IOException when the file can't be read.
+     */
+    @Test
+    public void callRepeatedGenomes() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(("S\t1\tA\t*\tORI:Z:b;x;a\n"
+                + "S\t2\tC\t*\tORI:Z:b;x;a\n"
+                + "S\t3\tG\t*\tORI:Z:b;x\n"
+                + "S\t4\tT\t*\tORI:Z:b;x;a\n").getBytes(StandardCharsets.UTF_8));
+        out.close();
+        GfaChunk chunk = new GfaChunk(file, 0, file.length(), new GenomeIndex(new String[]{"a", "b"})).call();
+        assertArrayEquals(new int[]{1, 0}, genomes(chunk, 0));
+        assertArrayEquals(new int[]{1, 0}, genomes(chunk, 1));
+        assertArrayEquals(new int[]{1}, genomes(chunk, 2));
+        assertArrayEquals(new int[]{1, 0}, genomes(chunk, 3));
+    }
+
+    /**
+     * Returns the genomes of a segment of the chunk.
+     * @param chunk the parsed chunk.
+     * @param index the index of the segment.
+     * @return the genomes of the segment.
+     */
+    private int[] genomes(GfaChunk chunk, int index) {
+        int start = chunk.getGenomeStart(index);
+        return Arrays.copyOfRange(chunk.getGenomes(), start, start + chunk.getGenomeCount(index));
+    }
+
+    /**
+     * Returns a segment of the chunk as a string.
+     * @param chunk the parsed chunk.
+     * @param index the index of the segment.
+     * @return the segment.
+     */
+    private String segment(GfaChunk chunk, int index) {
+        return new String(chunk.getData(), chunk.getSegmentStart(index), chunk.getSegmentLength(index), StandardCharsets.UTF_8);
+    }
+}
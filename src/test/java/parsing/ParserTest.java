@@ -1,28 +1,41 @@
 package parsing;
 
+import datastructure.GenomeDB;
 import datastructure.Node;
 import datastructure.NodeGraph;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
 import javafx.application.Platform;
 import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import services.ServiceLocator;
+import services.TaskScheduler;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by 101010.
@@ -31,13 +44,20 @@ import static org.mockito.Matchers.any;
 @PrepareForTest({Platform.class})
 public class ParserTest {
 
+    @Before
+    public void setUp() {
+        ServiceLocator serviceLocator = mock(ServiceLocator.class);
+        when(serviceLocator.getTaskScheduler()).thenReturn(TaskScheduler.getInstance());
+        Parser.register(serviceLocator);
+    }
+
     @After
     public void tearDown() {
         String workingDirectory = System.getProperty("user.dir");
         String absoluteFilePath = workingDirectory + File.separator;
-        File cache = new File(absoluteFilePath + "/src/main/resources/test2.txt");
-        File segments = new File(absoluteFilePath + "/src/main/resources/test2Segments.txt");
-        File genomes = new File(absoluteFilePath + "/src/main/resources/test2Genomes.txt");
+        File cache = new File(absoluteFilePath + "/src/main/resources/test2Cache.bin");
+        File segments = new File(absoluteFilePath + "/src/main/resources/test2Segments.bin");
+        File genomes = new File(absoluteFilePath + "/src/main/resources/test2Genomes.bin");
 
         if (cache.exists()) {
             cache.delete();
@@ -69,8 +89,8 @@ public class ParserTest {
         String absoluteFilePath = workingDirectory + File.separator;
         NodeGraph data = parser.parse(new File(absoluteFilePath + "/src/main/resources/test2.gfa"));
         try {
-            Parser.getThread().join();
-        } catch (InterruptedException e) {
+            Parser.getTask().get();
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
         }
 
@@ -79,8 +99,8 @@ public class ParserTest {
 
         NodeGraph data2 = parser.parse(new File(absoluteFilePath + "/src/main/resources/test2.gfa"));
         try {
-            Parser.getThread().join();
-        } catch (InterruptedException e) {
+            Parser.getTask().get();
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
         }
 
@@ -88,6 +108,33 @@ public class ParserTest {
         assertTrue(data2.getSegment(7).length() != 0);
     }
 
+    @Test
+    public void parseChunks() {
+        PowerMockito.mockStatic(Platform.class);
+        PowerMockito.doNothing().when(Platform.class);
+        Platform.runLater(any());
+
+        parsing.Parser parser = parsing.Parser.getInstance();
+        String workingDirectory = System.getProperty("user.dir");
+        String absoluteFilePath = workingDirectory + File.separator;
+        File file = new File(absoluteFilePath + "/src/main/resources/test2.gfa");
+        try {
+            NodeGraph whole = parser.parse(file, new NodeGraph());
+            Parser.getTask().get();
+            NodeGraph chunked = parser.parse(file, new NodeGraph(), 100);
+            Parser.getTask().get();
+
+            assertEquals(whole.getSize(), chunked.getSize());
+            for (int i = 0; i < whole.getSize(); i++) {
+                assertEquals(whole.getNode(i), chunked.getNode(i));
+                assertEquals(whole.getSegment(i), chunked.getSegment(i));
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void createCache() {
         PowerMockito.mockStatic(Platform.class);
@@ -101,34 +148,59 @@ public class ParserTest {
         NodeGraph data = parser.parse(new File(absoluteFilePath + "/src/main/resources/test2.gfa"));
 
         try {
-            Parser.getThread().join();
-        } catch (InterruptedException e) {
+            Parser.getTask().get();
+            Parser.getCacheTask().get();
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
+            fail();
         }
+        assertEquals(1.0, Parser.getCacheProgress(), 0.0);
 
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File(absoluteFilePath + "/src/main/resources/test2.txt"))));
-            assertEquals(data.getSize(), Integer.parseInt(br.readLine()));
-            int[] in;
-            int[] out;
-            for(int i = 0; i < data.getSize(); i++) {
-                assertEquals(data.getNode(i).getLength(), Integer.parseInt(br.readLine()));
-                out = data.getNode(i).getOutgoingEdges();
-                in = data.getNode(i).getIncomingEdges();
-
-                assertEquals(out.length, Integer.parseInt(br.readLine()));
-                String[] tempLine = br.readLine().split("\t");
-                for (int j = 0; j < out.length; j++) {
-                    assertEquals(out[j], Integer.parseInt(tempLine[j]));
+            DataInputStream in = new DataInputStream(new FileInputStream(new File(absoluteFilePath + "/src/main/resources/test2Cache.bin")));
+            assertEquals(Parser.CACHE_MAGIC, in.readInt());
+            assertEquals(Parser.CACHE_VERSION, in.readInt());
+            assertEquals(data.getSize(), in.readInt());
+            int outSize = in.readInt();
+            int inSize = in.readInt();
+            in.skipBytes(Parser.CACHE_HEADER_SIZE - 20);
+            for (int i = 0; i < data.getSize(); i++) {
+                assertEquals(data.getNode(i).getLength(), in.readInt());
+            }
+            int[] outOffsets = new int[data.getSize() + 1];
+            for (int i = 0; i <= data.getSize(); i++) {
+                outOffsets[i] = in.readInt();
+            }
+            int[] outTargets = new int[outSize];
+            for (int i = 0; i < outSize; i++) {
+                outTargets[i] = in.readInt();
+            }
+            int[] inOffsets = new int[data.getSize() + 1];
+            for (int i = 0; i <= data.getSize(); i++) {
+                inOffsets[i] = in.readInt();
+            }
+            int[] inTargets = new int[inSize];
+            for (int i = 0; i < inSize; i++) {
+                inTargets[i] = in.readInt();
+            }
+            in.close();
+
+            int[] inEdges;
+            int[] outEdges;
+            for (int i = 0; i < data.getSize(); i++) {
+                outEdges = data.getNode(i).getOutgoingEdges();
+                inEdges = data.getNode(i).getIncomingEdges();
+
+                assertEquals(outEdges.length, outOffsets[i + 1] - outOffsets[i]);
+                for (int j = 0; j < outEdges.length; j++) {
+                    assertEquals(outEdges[j], outTargets[outOffsets[i] + j]);
                 }
 
-                assertEquals(in.length, Integer.parseInt(br.readLine()));
-                tempLine = br.readLine().split("\t");
-                for (int j = 0; j < in.length; j++) {
-                    assertEquals(in[j], Integer.parseInt(tempLine[j]));
+                assertEquals(inEdges.length, inOffsets[i + 1] - inOffsets[i]);
+                for (int j = 0; j < inEdges.length; j++) {
+                    assertEquals(inEdges[j], inTargets[inOffsets[i] + j]);
                 }
             }
-            br.close();
         } catch(Exception e) {
             e.printStackTrace();
             fail();
@@ -144,31 +216,24 @@ public class ParserTest {
         parsing.Parser parser = parsing.Parser.getInstance();
         String workingDirectory = System.getProperty("user.dir");
         String absoluteFilePath = workingDirectory + File.separator;
-        File file = new File(absoluteFilePath + "/src/test/resources/testCache.txt");
+        File file = new File(absoluteFilePath + "/src/test/resources/testCache.bin");
         try {
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file));
-            bw.write("4\n" +
-                    "5\n" +
-                    "3\n" +
-                    "1\t2\t3\n" +
-                    "0\n" +
-                    "\n" +
-                    "6\n" +
-                    "1\n" +
-                    "3\n" +
-                    "1\n" +
-                    "0\n" +
-                    "7\n" +
-                    "0\n" +
-                    "\n" +
-                    "1\n" +
-                    "0\n" +
-                    "8\n" +
-                    "0\n" +
-                    "\n" +
-                    "2\n" +
-                    "1\t2");
-            bw.close();
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            int[] header = new int[]{Parser.CACHE_MAGIC, Parser.CACHE_VERSION, 4, 4, 4};
+            int[] body = new int[]{
+                    5, 6, 7, 8,
+                    0, 3, 4, 4, 4,
+                    1, 2, 3, 3,
+                    0, 0, 1, 2, 4,
+                    0, 0, 0, 1};
+            for (int i : header) {
+                out.writeInt(i);
+            }
+            out.write(new byte[Parser.CACHE_HEADER_SIZE - 4 * header.length]);
+            for (int i : body) {
+                out.writeInt(i);
+            }
+            out.close();
             NodeGraph graph = new NodeGraph();
             Node node1 = new Node();
             Node node2 = new Node();
@@ -194,8 +259,8 @@ public class ParserTest {
             parser.parseCache(testGraph, file);
 
             try {
-                Parser.getThread().join();
-            } catch (InterruptedException e) {
+                Parser.getTask().get();
+            } catch (InterruptedException | ExecutionException e) {
                 e.printStackTrace();
             }
 
@@ -228,55 +293,39 @@ public class ParserTest {
         Parser parser = Parser.getInstance();
         String workingDirectory = System.getProperty("user.dir");
         String absoluteFilePath = workingDirectory + File.separator;
+        parser.parse(new File(absoluteFilePath + "/src/main/resources/test2.gfa"));
         try {
-            parser.parse(new File(absoluteFilePath + "/src/main/resources/test2.gfa"));
-            try {
-                Parser.getThread().join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File(absoluteFilePath + "/src/main/resources/test2Genomes.txt"))));
-            assertEquals("10\tTKK-01-0015.fasta\tTKK-01-0026.fasta\tTKK-01-0029.fasta\tTKK-01-0058.fasta\tTKK-01-0066.fasta\tTKK_02_0018.fasta\tTKK_02_0068.fasta\tTKK_04_0002.fasta\tTKK_04_0031.fasta\tTKK_REF.fasta\t", br.readLine());
-            assertEquals("2\t4\t9\t", br.readLine());
-            assertEquals("6\t8\t5\t1\t6\t4\t9\t", br.readLine());
-            assertEquals("2\t4\t9\t", br.readLine());
-            assertEquals("4\t6\t8\t5\t1\t", br.readLine());
-            assertEquals("6\t8\t5\t1\t6\t4\t9\t", br.readLine());
-            assertEquals("1\t8\t", br.readLine());
-            assertEquals("5\t6\t4\t9\t5\t1\t", br.readLine());
-            assertEquals("6\t8\t5\t1\t6\t4\t9\t", br.readLine());
-            br.close();
-        } catch(IOException e) {
+            Parser.getTask().get();
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
-            fail();
         }
+
+        GenomeDB db = new GenomeDB(absoluteFilePath + "/src/main/resources/test2Genomes.bin");
+        assertEquals(10, db.getGenomeCount());
+        assertEquals("TKK-01-0015.fasta", db.getGenomeName(0));
+        assertEquals("TKK_REF.fasta", db.getGenomeName(9));
+        assertArrayEquals(new int[]{4, 9}, db.getGenomes(0));
+        assertArrayEquals(new int[]{1, 4, 5, 6, 8, 9}, db.getGenomes(1));
+        assertArrayEquals(new int[]{4, 9}, db.getGenomes(2));
+        assertArrayEquals(new int[]{1, 5, 6, 8}, db.getGenomes(3));
+        assertArrayEquals(new int[]{1, 4, 5, 6, 8, 9}, db.getGenomes(4));
+        assertArrayEquals(new int[]{8}, db.getGenomes(5));
+        assertArrayEquals(new int[]{1, 4, 5, 6, 9}, db.getGenomes(6));
+        assertArrayEquals(new int[]{1, 4, 5, 6, 8, 9}, db.getGenomes(7));
+        assertArrayEquals(new int[]{0, 1, 2, 4, 6, 7}, db.getNodes(4));
+        assertArrayEquals(new int[0], db.getNodes(0));
     }
 
     @Test
     public void generateGenomes() {
-        String workingDirectory = System.getProperty("user.dir");
-        String absoluteFilePath = workingDirectory + File.separator;
-        File file = new File(absoluteFilePath + "/src/test/resources/testGenerateGenomes.txt");
         try {
-            file.createNewFile();
-            BufferedWriter gw = new BufferedWriter(new FileWriter(file));
             String line = "::hallo;sjors";
-
-            Class[] classes = new Class[]{BufferedWriter.class, String.class};
-            Method method = Parser.class.getDeclaredMethod("generateGenomes", BufferedWriter.class, String.class);
+            Method method = Parser.class.getDeclaredMethod("generateGenomes", String.class);
             method.setAccessible(true);
-            String[] result = (String[]) method.invoke(Parser.getInstance(), gw, line);
-            gw.close();
+            String[] result = (String[]) method.invoke(Parser.getInstance(), line);
+            assertEquals(2, result.length);
             assertEquals("hallo", result[0]);
             assertEquals("sjors", result[1]);
-            BufferedReader gr = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-            String[] readLine = gr.readLine().split("\t");
-            assertEquals("2", readLine[0]);
-            assertEquals("hallo", readLine[1]);
-            assertEquals("sjors", readLine[2]);
-            gr.close();
-            file.delete();
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -306,4 +355,67 @@ public class ParserTest {
             fail();
         }
     }
+
+    @Test
+    public void countSegments() {
+        String workingDirectory = System.getProperty("user.dir");
+        String absoluteFilePath = workingDirectory + File.separator;
+        File file = new File(absoluteFilePath + "/src/test/resources/testCountSegments.gfa");
+        try {
+            BufferedWriter gw = new BufferedWriter(new FileWriter(file));
+            gw.write("H\tVN:Z:1.0\nS\t1\tACGT\t*\nS\t12\tA\t*\nL\t1\t+\t12\t+\t0M\n");
+            gw.close();
+            Method method = Parser.class.getDeclaredMethod("countSegments", File.class);
+            method.setAccessible(true);
+            assertEquals(8, (int) method.invoke(Parser.getInstance(), new File(absoluteFilePath + "/src/main/resources/test2.gfa")));
+            assertEquals(12, (int) method.invoke(Parser.getInstance(), file));
+            file.delete();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void isCacheValid() {
+        PowerMockito.mockStatic(Platform.class);
+        PowerMockito.doNothing().when(Platform.class);
+        Platform.runLater(any());
+
+        Parser parser = Parser.getInstance();
+        String workingDirectory = System.getProperty("user.dir");
+        String absoluteFilePath = workingDirectory + File.separator;
+        String name = absoluteFilePath + "/src/test/resources/testValidation";
+        File file = new File(name + ".gfa");
+        File cache = new File(name + "Cache.bin");
+        try {
+            Files.copy(Paths.get(absoluteFilePath + "/src/main/resources/test2.gfa"), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            assertFalse(parser.isCacheValid(file, cache));
+            parser.parse(file);
+            Parser.getTask().get();
+            assertEquals(cache.toPath(), Parser.getCacheTask().get());
+            assertTrue(parser.isCacheValid(file, cache));
+            assertFalse(new File(name + "Cache.bin.tmp").exists());
+
+            assertTrue(file.setLastModified(file.lastModified() + 2000));
+            assertFalse(parser.isCacheValid(file, cache));
+
+            parser.parse(file);
+            Parser.getTask().get();
+            assertEquals(cache.toPath(), Parser.getCacheTask().get());
+            assertTrue(parser.isCacheValid(file, cache));
+            RandomAccessFile raf = new RandomAccessFile(cache, "rw");
+            raf.setLength(raf.length() - 4);
+            raf.close();
+            assertFalse(parser.isCacheValid(file, cache));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            file.delete();
+            cache.delete();
+            new File(name + "Segments.bin").delete();
+            new File(name + "Genomes.bin").delete();
+        }
+    }
 }
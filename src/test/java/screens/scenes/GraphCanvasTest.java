@@ -0,0 +1,94 @@
+package screens.scenes;
+
+import datastructure.DrawNode;
+import javafx.scene.shape.Line;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for GraphCanvas.
+ */
+public class GraphCanvasTest {
+    /**
+     * Node drawn at (0, 0).
+     */
+    private DrawNode node;
+
+    /**
+     * Line from the node to (100, 0).
+     */
+    private Line line;
+
+    /**
+     * The canvas used to test.
+     */
+    private GraphCanvas canvas;
+
+    /**
+     * Before each test we create a canvas with a node and a line.
+     */
+    @Before
+    public void setUp() {
+        node = new DrawNode(0);
+        node.setX(0);
+        node.setY(0);
+        node.setWidth(10);
+        node.setHeight(10);
+        line = new Line();
+        line.setStartX(10);
+        line.setStartY(5);
+        line.setEndX(100);
+        line.setEndY(5);
+        canvas = new GraphCanvas(Arrays.asList(line, node));
+        canvas.setViewport(0, 0, 200, 20, 1, 1);
+    }
+
+    /**
+     * Check if the canvas covers the viewport with one pixel per screen pixel.
+     */
+    @Test
+    public void setViewport() {
+        canvas.setViewport(50, 0, 150, 20, 4, 1);
+        assertEquals(50, canvas.getLayoutX(), 0.0);
+        assertEquals(400, canvas.getWidth(), 0.0);
+        assertEquals(20, canvas.getHeight(), 0.0);
+        assertEquals(0.25, canvas.getScaleX(), 0.0);
+        assertEquals(-150, canvas.getTranslateX(), 0.0);
+    }
+
+    /**
+     * Check if a click selects the node or line under it.
+     */
+    @Test
+    public void pick() {
+        assertEquals(node, canvas.pick(5, 5));
+        assertEquals(line, canvas.pick(50, 7));
+        assertNull(canvas.pick(50, 10));
+    }
+
+    /**
+     * Check if a click is mapped from screen pixels to the layout when zoomed in.
+     */
+    @Test
+    public void pickZoomed() {
+        canvas.setViewport(40, 0, 60, 20, 10, 1);
+        assertEquals(line, canvas.pick(100, 7));
+        assertNull(canvas.pick(100, 10));
+    }
+
+    /**
+     * Check if removed shapes are no longer part of the canvas.
+     */
+    @Test
+    public void removeAll() {
+        canvas.removeAll(new ArrayList<>(Arrays.asList(node)));
+        assertEquals(1, canvas.getShapes().size());
+        assertNull(canvas.pick(5, 5));
+    }
+}
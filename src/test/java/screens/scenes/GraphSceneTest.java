@@ -1,5 +1,7 @@
 package screens.scenes;
 
+import datastructure.GraphBuilder;
+import datastructure.GraphStore;
 import datastructure.Node;
 import datastructure.NodeGraph;
 import javafx.collections.ObservableList;
@@ -17,13 +19,17 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import screens.FXElementsFactory;
 import services.ServiceLocator;
+import services.TaskScheduler;
 
 import javax.swing.SwingUtilities;
 import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -89,6 +95,7 @@ public class GraphSceneTest {
         nodes.add(n2);
         ngTest = new NodeGraph(nodes, null, null, null);
         when(serviceLocator.getController()).thenReturn(controller);
+        when(serviceLocator.getTaskScheduler()).thenReturn(TaskScheduler.getInstance());
         when(controller.getRadius()).thenReturn(mockId);
         when(fact.createStage()).thenReturn(stage);
         when(fact.createLabel(anyString())).thenReturn(label);
@@ -131,4 +138,18 @@ public class GraphSceneTest {
         verify(group, never()).getChildren();
         verify(fact, never()).show(stage);
     }
+
+    @Test
+    public void drawGraphSupersedes() throws Exception {
+        ngTest.startLoading(new GraphBuilder());
+        long generation = gs.getGeneration();
+        Future<?> first = gs.drawGraph(0, 20);
+        Future<?> second = gs.drawGraph(1, 20);
+        assertTrue(first.isCancelled());
+        assertFalse(second.isDone());
+        ngTest.setStore(GraphStore.fromNodes(nodes));
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(generation + 2, gs.getGeneration());
+        verify(controller).setCurrentCenter(1);
+    }
 }
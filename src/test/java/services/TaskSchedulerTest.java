@@ -0,0 +1,133 @@
+package services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for TaskScheduler.
+ */
+public class TaskSchedulerTest {
+    /**
+     * The scheduler used to test.
+     */
+    private TaskScheduler scheduler;
+
+    /**
+     * Before each test we get the scheduler.
+     */
+    @Before
+    public void setUp() {
+        scheduler = TaskScheduler.getInstance();
+    }
+
+    /**
+     * Check if a task runs in a pool thread with the name of the pool.
+     * @throws Exception when the task fails.
+     */
+    @Test
+    public void submit() throws Exception {
+        Future<String> result = scheduler.submit(TaskScheduler.HELPER, () -> Thread.currentThread().getName());
+        assertTrue(result.get().startsWith(TaskScheduler.HELPER + "-"));
+    }
+
+    /**
+     * Check if an unknown pool is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void submitUnknownPool() {
+        scheduler.submit("unknown", () -> { });
+    }
+
+    /**
+     * Check if a task replaces the running task submitted under the same key.
+     * @throws Exception when the task fails.
+     */
+    @Test
+    public void submitLatest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<?> first = scheduler.submitLatest(TaskScheduler.DRAWING, "test", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Integer> second = scheduler.submitLatest(TaskScheduler.DRAWING, "test", () -> 1);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(first.isCancelled());
+        assertEquals(1, (int) second.get());
+        assertEquals(second, scheduler.getLatest("test"));
+    }
+
+    /**
+     * Check if a cancelled task that is still queued never runs.
+     * @throws Exception when the task fails.
+     */
+    @Test
+    public void cancel() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocker = scheduler.submit(TaskScheduler.CACHE, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail();
+            }
+        });
+        boolean[] ran = new boolean[1];
+        Future<?> queued = scheduler.submitLatest(TaskScheduler.CACHE, "queued", () -> {
+            ran[0] = true;
+        });
+        scheduler.cancel("queued");
+        assertNull(scheduler.getLatest("queued"));
+        release.countDown();
+        blocker.get();
+        assertTrue(queued.isCancelled());
+        try {
+            scheduler.submit(TaskScheduler.CACHE, () -> { }).get();
+        } catch (ExecutionException e) {
+            fail();
+        }
+        assertFalse(ran[0]);
+    }
+
+    /**
+     * Check if a full pool fed from the user interface cancels its oldest waiting task
+     * instead of running the new task in the submitting thread.
+     * @throws Exception when a task fails.
+     */
+    @Test
+    public void fullPoolCancelsOldest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable block = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        scheduler.submit(TaskScheduler.DRAWING, block);
+        Future<?> oldest = scheduler.submit(TaskScheduler.DRAWING, block);
+        for (int i = 1; i < 64; i++) {
+            scheduler.submit(TaskScheduler.DRAWING, block);
+        }
+        Future<String> last = scheduler.submit(TaskScheduler.DRAWING, () -> Thread.currentThread().getName());
+        assertTrue(oldest.isCancelled());
+        assertFalse(last.isDone());
+        release.countDown();
+        assertTrue(last.get(5, TimeUnit.SECONDS).startsWith(TaskScheduler.DRAWING + "-"));
+    }
+}